@@ -0,0 +1,73 @@
+package study.querydsl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.search.MemberColumnarIndex;
+
+/**
+ * 같은 조건의 첫 페이지를 JPA(content + count 쿼리)와 인메모리 컬럼 인덱스로 검색한 비교.
+ * JPA 쪽은 count 캐시의 효과를 빼기 위해 매 호출 전에 캐시를 비운다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ColumnarSearchBenchmark {
+	/**
+	 * selective: 한 팀 + 10살 구간(약 0.1%), broad: ageGoe=20(약 80%)
+	 */
+	@Param({"selective", "broad"})
+	public String condition;
+
+	private MemberRepository memberRepository;
+	private MemberCountCache countCache;
+	private MemberColumnarIndex columnarIndex;
+	private MemberSearchCondition searchCondition;
+	private PageRequest pageRequest;
+
+	@Setup(Level.Trial)
+	public void setUp(MemberDataState data) {
+		memberRepository = data.getBean(MemberRepository.class);
+		countCache = data.getBean(MemberCountCache.class);
+		columnarIndex = data.getBean(MemberColumnarIndex.class);
+		if ("selective".equals(condition)) {
+			searchCondition = MemberDataState.selectiveCondition();
+		} else {
+			searchCondition = new MemberSearchCondition();
+			searchCondition.setAgeGoe(20);
+		}
+		pageRequest = PageRequest.of(0, 20);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> jpa() {
+		countCache.invalidateAll();
+		return memberRepository.searchPageComplex(searchCondition, pageRequest);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> inMemory() {
+		return columnarIndex.search(searchCondition, pageRequest);
+	}
+}
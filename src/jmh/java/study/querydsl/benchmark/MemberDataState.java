@@ -0,0 +1,69 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import study.querydsl.QuerydslApplication;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.search.MemberColumnarIndex;
+import study.querydsl.seed.MemberSeeder;
+import study.querydsl.seed.TeamDistribution;
+
+/**
+ * 내장 H2(in-memory)에 회원 데이터를 채운 애플리케이션 컨텍스트.
+ * 팀은 100개("team0" ~ "team99")에 무작위로, 나이는 0 ~ 99로 고르게 분포한다.
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+	static final int TEAM_COUNT = 100;
+
+	@Param({"10000", "100000", "1000000"})
+	public int members;
+
+	public ConfigurableApplicationContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(QuerydslApplication.class)
+			.web(WebApplicationType.NONE)
+			.run(
+				"--spring.profiles.active=bench",
+				"--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.properties.hibernate.format_sql=false",
+				"--spring.jpa.properties.hibernate.use_sql_comments=false",
+				"--decorator.datasource.enabled=false",
+				"--logging.level.org.hibernate.SQL=warn",
+				"--member.search.in-memory.enabled=true"
+			);
+		context.getBean(MemberSeeder.class).seed(members, TEAM_COUNT, TeamDistribution.UNIFORM);
+		// 시딩 중 쌓인 delta 없이 한 번에 만든 스냅샷으로 측정한다
+		context.getBean(MemberColumnarIndex.class).reload();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	public <T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	/**
+	 * 한 팀, 10살 구간으로 좁힌 조건. 전체 회원의 약 1/1000이 걸린다.
+	 */
+	public static MemberSearchCondition selectiveCondition() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("team7");
+		condition.setAgeGoe(20);
+		condition.setAgeLoe(29);
+		return condition;
+	}
+}
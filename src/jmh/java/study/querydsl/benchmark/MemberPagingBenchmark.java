@@ -0,0 +1,59 @@
+package study.querydsl.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * content/count 쿼리만 분리한 방식(searchPageSimple)과 count 캐시, 병렬 count, 쿼리 캐시를 더한 방식의 비교.
+ * 둘 다 CountQuery로 join 없는 count를 쓰고, 내용 크기로 total을 알 수 있으면 count를 건너뛴다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MemberPagingBenchmark {
+	@Param({"0", "100"})
+	public int page;
+
+	private MemberRepository memberRepository;
+	private MemberSearchCondition condition;
+	private PageRequest pageRequest;
+
+	@Setup(Level.Trial)
+	public void setUp(MemberDataState data) {
+		memberRepository = data.getBean(MemberRepository.class);
+		condition = new MemberSearchCondition();
+		condition.setAgeGoe(20);
+		pageRequest = PageRequest.of(page, 20);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> searchPageSimple() {
+		return memberRepository.searchPageSimple(condition, pageRequest);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> searchPageComplex() {
+		return memberRepository.searchPageComplex(condition, pageRequest);
+	}
+}
@@ -0,0 +1,50 @@
+package study.querydsl.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+/**
+ * BooleanBuilder와 where 다중 파라미터 방식의 동적 쿼리 비교.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MemberSearchBenchmark {
+	private MemberJpaRepository memberJpaRepository;
+	private MemberSearchCondition condition;
+
+	@Setup(Level.Trial)
+	public void setUp(MemberDataState data) {
+		memberJpaRepository = data.getBean(MemberJpaRepository.class);
+		condition = MemberDataState.selectiveCondition();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> searchByBuilder() {
+		return memberJpaRepository.searchByBuilder(condition);
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> searchByWhereParam() {
+		return memberJpaRepository.search(condition);
+	}
+}
@@ -0,0 +1,144 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.projection.FastProjections;
+
+/**
+ * QuerydslBasicTest에서 다룬 DTO 프로젝션 방식별 비교. 한 번에 1000건씩 매핑한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProjectionBenchmark {
+	private static final int ROWS = 1000;
+
+	private EntityManager em;
+	private JPAQueryFactory queryFactory;
+
+	@Setup(Level.Trial)
+	public void setUp(MemberDataState data) {
+		em = data.getBean(EntityManagerFactory.class).createEntityManager();
+		queryFactory = new JPAQueryFactory(em);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+	}
+
+	@Benchmark
+	public List<MemberDto> bean() {
+		return queryFactory
+			.select(Projections.bean(MemberDto.class, member.username, member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberDto> fields() {
+		return queryFactory
+			.select(Projections.fields(MemberDto.class, member.username, member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<UserDto> fieldsWithAlias() {
+		return queryFactory
+			.select(Projections.fields(UserDto.class, member.username.as("name"), member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberDto> fastBean() {
+		return queryFactory
+			.select(FastProjections.bean(MemberDto.class, member.username, member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<UserDto> fastFieldsWithAlias() {
+		return queryFactory
+			.select(FastProjections.fields(UserDto.class, member.username.as("name"), member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberDto> constructor() {
+		return queryFactory
+			.select(Projections.constructor(MemberDto.class, member.username, member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberDto> queryProjection() {
+		return queryFactory
+			.select(new QMemberDto(member.username, member.age))
+			.from(member)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> queryProjectionMemberTeam() {
+		return queryFactory
+			.select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+			.from(member)
+			.leftJoin(member.team, team)
+			.limit(ROWS)
+			.fetch();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> fastConstructorMemberTeam() {
+		return queryFactory
+			.select(FastProjections.constructor(MemberTeamDto.class,
+				member.id, member.username, member.age, team.id, team.name))
+			.from(member)
+			.leftJoin(member.team, team)
+			.limit(ROWS)
+			.fetch();
+	}
+}
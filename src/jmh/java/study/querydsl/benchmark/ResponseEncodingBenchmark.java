@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * /v3/members 한 페이지(Page&lt;MemberTeamDto&gt;)를 JSON, Smile, CBOR로 직렬화하는 비용과 크기 비교.
+ * gzip=true는 server.compression이 켜졌을 때 전송되는 바이트다. 페이지당 바이트 수는 setup에서 출력한다.
+ * DB 없이 직렬화만 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResponseEncodingBenchmark {
+	@Param({"json", "smile", "cbor"})
+	private String format;
+	@Param({"20", "200"})
+	private int pageSize;
+	@Param({"false", "true"})
+	private boolean gzip;
+
+	private ObjectMapper objectMapper;
+	private Page<MemberTeamDto> page;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		switch (format) {
+			case "smile":
+				objectMapper = Jackson2ObjectMapperBuilder.smile().build();
+				break;
+			case "cbor":
+				objectMapper = Jackson2ObjectMapperBuilder.cbor().build();
+				break;
+			default:
+				objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		}
+		List<MemberTeamDto> content = new ArrayList<>(pageSize);
+		for (int i = 0; i < pageSize; i++) {
+			long teamId = i % 10;
+			content.add(new MemberTeamDto(100_000L + i, "member" + i, 20 + i % 50, teamId, "team" + teamId));
+		}
+		page = new PageImpl<>(content, PageRequest.of(3, pageSize), 1_000_000);
+		System.out.printf("%n%s pageSize=%d gzip=%s: %d bytes/page%n", format, pageSize, gzip, encode().length);
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		if (!gzip) {
+			return objectMapper.writeValueAsBytes(page);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			objectMapper.writeValue(out, page);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,78 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+/**
+ * username 부분 문자열 검색. 트라이그램 색인(usernameContains)과 like '%...%' 전체 스캔 비교.
+ * 회원 수(members 파라미터)가 늘어도 색인 쪽 지연이 일정하게 유지되는지 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UsernameSearchBenchmark {
+	/**
+	 * 시더가 만든 username은 "member" + 순번이다
+	 */
+	private static final String PART = "r9876";
+
+	private MemberRepository memberRepository;
+	private EntityManager em;
+	private JPAQueryFactory queryFactory;
+	private MemberSearchCondition condition;
+
+	@Setup(Level.Trial)
+	public void setUp(MemberDataState data) {
+		memberRepository = data.getBean(MemberRepository.class);
+		em = data.getBean(EntityManagerFactory.class).createEntityManager();
+		queryFactory = new JPAQueryFactory(em);
+		condition = new MemberSearchCondition();
+		condition.setUsernameContains(PART);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> containsByGrams() {
+		return memberRepository.search(condition);
+	}
+
+	@Benchmark
+	public List<String> containsByLikeScan() {
+		return queryFactory
+			.select(member.username)
+			.from(member)
+			.where(member.username.contains(PART))
+			.fetch();
+	}
+}
@@ -0,0 +1,85 @@
+package study.querydsl.controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.metrics.MemberSearchMetrics;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberSearchCoalescer;
+
+/**
+ * /v1 ~ /v3 검색을 {@link MemberQueryExecutor}에서 실행하고 서블릿 스레드는 바로 돌려준다.
+ * 느린 검색이 몰려도 Tomcat 스레드가 고갈되지 않고, 한도를 넘는 요청은 503으로 바로 거절된다.
+ */
+@RestController
+@RequestMapping("/async")
+public class AsyncMemberController {
+	private final MemberJpaRepository memberJpaRepository;
+	private final MemberSearchCoalescer memberSearchCoalescer;
+	private final MemberQueryExecutor queryExecutor;
+	private final MemberSearchMetrics.Operation v1Metrics;
+	private final MemberSearchMetrics.Operation v2Metrics;
+	private final MemberSearchMetrics.Operation v3Metrics;
+
+	public AsyncMemberController(MemberJpaRepository memberJpaRepository,
+		MemberSearchCoalescer memberSearchCoalescer, MemberQueryExecutor queryExecutor, MemberSearchMetrics metrics) {
+		this.memberJpaRepository = memberJpaRepository;
+		this.memberSearchCoalescer = memberSearchCoalescer;
+		this.queryExecutor = queryExecutor;
+		this.v1Metrics = metrics.controller("/async/v1/members");
+		this.v2Metrics = metrics.controller("/async/v2/members");
+		this.v3Metrics = metrics.controller("/async/v3/members");
+	}
+
+	@GetMapping("/v1/members")
+	public CompletableFuture<List<MemberTeamDto>> searchMemberV1(MemberSearchCondition condition) {
+		long start = v1Metrics.start();
+		return queryExecutor.submit(() -> memberJpaRepository.search(condition))
+			.whenComplete((result, e) -> {
+				if (result != null) {
+					v1Metrics.record(condition.shape(), start, result.size());
+				}
+			});
+	}
+
+	@GetMapping("/v2/members")
+	public CompletableFuture<Page<MemberTeamDto>> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
+		long start = v2Metrics.start();
+		return queryExecutor.submit(() -> memberSearchCoalescer.searchPageSimple(condition, pageable))
+			.whenComplete((result, e) -> {
+				if (result != null) {
+					v2Metrics.record(condition.shape(), start, result.getNumberOfElements());
+				}
+			});
+	}
+
+	@GetMapping("/v3/members")
+	public CompletableFuture<Page<MemberTeamDto>> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
+		long start = v3Metrics.start();
+		return queryExecutor.submit(() -> memberSearchCoalescer.searchPageComplex(condition, pageable))
+			.whenComplete((result, e) -> {
+				if (result != null) {
+					v3Metrics.record(condition.shape(), start, result.getNumberOfElements());
+				}
+			});
+	}
+
+	@ExceptionHandler({RejectedExecutionException.class, TimeoutException.class})
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public String busy(Exception e) {
+		return "member search is busy, retry later";
+	}
+}
@@ -1,36 +1,143 @@
 package study.querydsl.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.InvalidSearchRequestException;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.metrics.MemberSearchMetrics;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchCoalescer;
+import study.querydsl.search.MemberColumnarIndex;
 
 @RestController
-@RequiredArgsConstructor
 public class MemberController {
 	private final MemberJpaRepository memberJpaRepository;
 	private final MemberRepository memberRepository;
+	private final MemberSearchCoalescer memberSearchCoalescer;
+	private final MemberExporter memberExporter;
+	private final MemberSearchETags memberSearchETags;
+	private final MemberColumnarIndex memberColumnarIndex;
+	private final MemberSearchMetrics.Operation v1Metrics;
+	private final MemberSearchMetrics.Operation v2Metrics;
+	private final MemberSearchMetrics.Operation v3Metrics;
+	private final MemberSearchMetrics.Operation v4Metrics;
+	private final MemberSearchMetrics.Operation v5Metrics;
 
+	public MemberController(MemberJpaRepository memberJpaRepository, MemberRepository memberRepository,
+		MemberSearchCoalescer memberSearchCoalescer, MemberExporter memberExporter, MemberSearchETags memberSearchETags,
+		MemberColumnarIndex memberColumnarIndex, MemberSearchMetrics metrics) {
+		this.memberJpaRepository = memberJpaRepository;
+		this.memberRepository = memberRepository;
+		this.memberSearchCoalescer = memberSearchCoalescer;
+		this.memberExporter = memberExporter;
+		this.memberSearchETags = memberSearchETags;
+		this.memberColumnarIndex = memberColumnarIndex;
+		this.v1Metrics = metrics.controller("/v1/members");
+		this.v2Metrics = metrics.controller("/v2/members");
+		this.v3Metrics = metrics.controller("/v3/members");
+		this.v4Metrics = metrics.controller("/v4/members");
+		this.v5Metrics = metrics.controller("/v5/members");
+	}
+
+	/**
+	 * /v1 ~ /v3은 ETag, Last-Modified를 보내고, 데이터가 바뀌지 않았으면 검색 없이 304로 응답한다.
+	 */
 	@GetMapping("/v1/members")
-	public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-		return memberJpaRepository.search(condition);
+	public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition, WebRequest webRequest) {
+		if (memberSearchETags.checkNotModified(webRequest)) {
+			return null;
+		}
+		long start = v1Metrics.start();
+		List<MemberTeamDto> result = memberJpaRepository.search(condition);
+		v1Metrics.record(condition.shape(), start, result.size());
+		return result;
+	}
+
+	@GetMapping(value = "/v1/members/export", produces = "application/x-ndjson")
+	public StreamingResponseBody exportMemberV1(MemberSearchCondition condition) {
+		return out -> memberExporter.writeNdjson(condition, out);
 	}
 
 	@GetMapping("/v2/members")
-	public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-		return memberRepository.searchPageSimple(condition, pageable);
+	public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+		WebRequest webRequest) {
+		if (memberSearchETags.checkNotModified(webRequest)) {
+			return null;
+		}
+		long start = v2Metrics.start();
+		Page<MemberTeamDto> result = memberSearchCoalescer.searchPageSimple(condition, pageable);
+		v2Metrics.record(condition.shape(), start, result.getNumberOfElements());
+		return result;
 	}
 
 	@GetMapping("/v3/members")
-	public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-		return memberRepository.searchPageComplex(condition, pageable);
+	public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+		WebRequest webRequest) {
+		if (memberSearchETags.checkNotModified(webRequest)) {
+			return null;
+		}
+		long start = v3Metrics.start();
+		Page<MemberTeamDto> result = memberSearchCoalescer.searchPageComplex(condition, pageable);
+		v3Metrics.record(condition.shape(), start, result.getNumberOfElements());
+		return result;
+	}
+
+	@GetMapping("/v4/members")
+	public MemberCursorPage searchMemberV4(MemberSearchCondition condition,
+		@RequestParam(required = false) String cursor,
+		@RequestParam(defaultValue = "20") int size,
+		@RequestParam(defaultValue = "ID") MemberCursorSort sort) {
+		long start = v4Metrics.start();
+		MemberCursorPage result = memberRepository.searchByCursor(condition, cursor, size, sort);
+		v4Metrics.record(condition.shape(), start, result.getContent().size());
+		return result;
+	}
+
+	/**
+	 * 인메모리 인덱스로 검색한다. 인덱스가 꺼져 있거나 아직 적재되지 않았으면 v3와 같이 DB에서 검색한다.
+	 */
+	@GetMapping("/v5/members")
+	public Page<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+		long start = v5Metrics.start();
+		Page<MemberTeamDto> result = memberColumnarIndex.isReady()
+			? memberColumnarIndex.search(condition, pageable)
+			: memberRepository.searchPageComplex(condition, pageable);
+		v5Metrics.record(condition.shape(), start, result.getNumberOfElements());
+		return result;
+	}
+
+	/**
+	 * 화면 하나가 보내던 여러 건의 /v1/members 요청을 한 번에 처리한다. 결과는 요청 목록의 순번(0부터)별로 돌려준다.
+	 */
+	@PostMapping("/members/batch-search")
+	public Map<Integer, List<MemberTeamDto>> batchSearchMember(@RequestBody List<MemberSearchCondition> conditions) {
+		return memberRepository.searchBatch(conditions);
+	}
+
+	/**
+	 * 잘못된 요청 값(커서, 페이지 크기, 배치 조건)만 400으로 응답한다. 그 밖의 IllegalArgumentException은 서버 오류다.
+	 */
+	@ExceptionHandler(InvalidSearchRequestException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	public String badRequest(InvalidSearchRequestException e) {
+		return e.getMessage();
 	}
 }
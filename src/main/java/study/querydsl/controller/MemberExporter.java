@@ -0,0 +1,74 @@
+package study.querydsl.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+/**
+ * 검색 결과를 한 줄에 하나씩(NDJSON) 응답 스트림에 바로 쓴다.
+ * 전체 결과를 List로 모으지 않으므로 결과 건수와 무관하게 메모리 사용량이 일정하다.
+ */
+@Component
+class MemberExporter {
+	private final MemberJpaRepository memberJpaRepository;
+	private final TransactionTemplate readOnlyTransaction;
+	private final ObjectWriter ndjsonWriter;
+	private final int flushInterval;
+
+	MemberExporter(MemberJpaRepository memberJpaRepository, PlatformTransactionManager transactionManager,
+		ObjectMapper objectMapper, @Value("${member.export.flush-interval:1000}") int flushInterval) {
+		this.memberJpaRepository = memberJpaRepository;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.ndjsonWriter = objectMapper.writerFor(MemberTeamDto.class)
+			.withRootValueSeparator("\n")
+			.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+			.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		this.flushInterval = flushInterval;
+	}
+
+	void writeNdjson(MemberSearchCondition condition, OutputStream out) throws IOException {
+		try {
+			readOnlyTransaction.executeWithoutResult(status -> write(condition, out));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void write(MemberSearchCondition condition, OutputStream out) {
+		try (Stream<MemberTeamDto> rows = memberJpaRepository.searchStream(condition);
+			 SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+			Iterator<MemberTeamDto> iterator = rows.iterator();
+			long written = 0;
+			while (iterator.hasNext()) {
+				writer.write(iterator.next());
+				if (++written % flushInterval == 0) {
+					writer.flush();
+				}
+			}
+			if (written > 0) {
+				writer.flush();
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
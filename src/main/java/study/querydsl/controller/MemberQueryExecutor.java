@@ -0,0 +1,200 @@
+package study.querydsl.controller;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.datasource.ReadYourWrites;
+
+/**
+ * 비동기 검색 엔드포인트의 쿼리를 서블릿 스레드 밖에서 실행한다.
+ * 동시에 실행되는 쿼리는 pool-size, 대기열은 queue-capacity로 제한되고, 넘치면 즉시 거절한다.
+ * 가상 스레드를 지원하는 JDK에서는 스레드 풀 대신 작업마다 가상 스레드를 만들고 같은 한도를 세마포어로 지킨다.
+ * 제한 시간은 호출한 쪽 future뿐 아니라 트랜잭션에도 걸어, 시간을 넘긴 쿼리는 JDBC statement가 취소되고
+ * 실행 슬롯과 커넥션을 돌려준다.
+ */
+@Slf4j
+@Component
+class MemberQueryExecutor {
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+	/**
+	 * 가상 스레드일 때만 사용한다. 실행 중 + 대기 중인 작업 수와 실행 중인 작업 수를 제한한다.
+	 */
+	private final Semaphore admission;
+	private final Semaphore running;
+	private final Duration timeout;
+	private final PlatformTransactionManager transactionManager;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final Counter rejected;
+	private final Timer queueWait;
+
+	MemberQueryExecutor(PlatformTransactionManager transactionManager, MeterRegistry registry,
+		@Value("${member.async.pool-size:16}") int poolSize,
+		@Value("${member.async.queue-capacity:200}") int queueCapacity,
+		@Value("${member.async.virtual-threads:true}") boolean preferVirtualThreads,
+		@Value("${member.async.timeout:30s}") Duration timeout) {
+		ExecutorService virtualExecutor = preferVirtualThreads ? virtualThreadExecutor() : null;
+		if (virtualExecutor != null) {
+			this.executor = virtualExecutor;
+			this.admission = new Semaphore(poolSize + queueCapacity);
+			this.running = new Semaphore(poolSize);
+		} else {
+			this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("member-query-"),
+				new ThreadPoolExecutor.AbortPolicy());
+			this.admission = null;
+			this.running = null;
+		}
+		this.virtualThreads = virtualExecutor != null;
+		this.timeout = timeout;
+		this.transactionManager = transactionManager;
+
+		String threads = virtualThreads ? "virtual" : "platform";
+		log.info("member query executor: {} threads, pool-size={}, queue-capacity={}", threads, poolSize,
+			queueCapacity);
+		Gauge.builder("member.async.queued", queued, AtomicInteger::get)
+			.description("실행을 기다리는 검색 수")
+			.tag("threads", threads)
+			.register(registry);
+		Gauge.builder("member.async.active", active, AtomicInteger::get)
+			.description("실행 중인 검색 수")
+			.tag("threads", threads)
+			.register(registry);
+		Gauge.builder("member.async.pool.size", () -> poolSize)
+			.tag("threads", threads)
+			.register(registry);
+		Gauge.builder("member.async.queue.capacity", () -> queueCapacity)
+			.tag("threads", threads)
+			.register(registry);
+		this.rejected = Counter.builder("member.async.rejected")
+			.description("대기열이 가득 차 거절된 검색 수")
+			.tag("threads", threads)
+			.register(registry);
+		this.queueWait = Timer.builder("member.async.wait")
+			.description("대기열에서 기다린 시간")
+			.tag("threads", threads)
+			.register(registry);
+	}
+
+	boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * 읽기 전용 트랜잭션 안에서 query를 실행한다. 대기열이 가득 차면 {@link RejectedExecutionException},
+	 * 제한 시간을 넘기면 {@link java.util.concurrent.TimeoutException}으로 실패한 future를 돌려준다.
+	 * 제한 시간은 제출 시점부터 세므로, 대기열에서 기다린 시간만큼 쿼리에 남은 시간이 줄어든다.
+	 */
+	<T> CompletableFuture<T> submit(Supplier<T> query) {
+		long submittedAt = System.nanoTime();
+		// 요청을 보낸 클라이언트의 read-your-writes 기한을 실행 스레드로 넘긴다
+		long primaryUntil = ReadYourWrites.primaryUntil();
+		if (admission != null && !admission.tryAcquire()) {
+			return reject(new RejectedExecutionException("member query queue is full"));
+		}
+		queued.incrementAndGet();
+		try {
+			Supplier<T> task = () -> ReadYourWrites.callWith(primaryUntil, () -> run(query, submittedAt));
+			return CompletableFuture.supplyAsync(task, executor)
+				.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			if (admission != null) {
+				admission.release();
+			}
+			return reject(e);
+		}
+	}
+
+	@PreDestroy
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	private <T> T run(Supplier<T> query, long submittedAt) {
+		try {
+			if (running != null) {
+				running.acquireUninterruptibly();
+			}
+			queued.decrementAndGet();
+			active.incrementAndGet();
+			queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+			try {
+				return readOnlyTransaction(submittedAt).execute(status -> query.get());
+			} finally {
+				active.decrementAndGet();
+				if (running != null) {
+					running.release();
+				}
+			}
+		} finally {
+			if (admission != null) {
+				admission.release();
+			}
+		}
+	}
+
+	/**
+	 * 남은 시간을 트랜잭션 제한 시간으로 건다. JpaTransactionManager가 트랜잭션 안의 쿼리마다 남은 시간을
+	 * query timeout으로 넘기므로, 시간을 넘긴 쿼리는 DB에서 취소된다. 트랜잭션 제한 시간은 초 단위라 올림한다.
+	 */
+	private TransactionTemplate readOnlyTransaction(long submittedAt) {
+		long remainingNanos = timeout.toNanos() - (System.nanoTime() - submittedAt);
+		if (remainingNanos <= 0) {
+			// 호출한 쪽은 이미 시간 초과로 응답했으므로 실행하지 않는다
+			throw new TransactionTimedOutException("member query timed out while queued");
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		transaction.setTimeout((int)Math.max(1, (remainingNanos + 999_999_999) / 1_000_000_000));
+		return transaction;
+	}
+
+	private <T> CompletableFuture<T> reject(RejectedExecutionException e) {
+		rejected.increment();
+		return CompletableFuture.failedFuture(e);
+	}
+
+	/**
+	 * JDK 21 이상이면 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory())를 만든다.
+	 * 컴파일 대상은 Java 11이므로 리플렉션으로 호출한다.
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "member-query-", 0L);
+			ThreadFactory factory = (ThreadFactory)builderType.getMethod("factory").invoke(builder);
+			return (ExecutorService)Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+				.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package study.querydsl.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.datasource.ReadYourWrites;
+import study.querydsl.datasource.ReplicaDataSourceProperties;
+import study.querydsl.repository.MemberDataVersion;
+
+/**
+ * 검색 응답의 ETag, Last-Modified. 데이터 버전과 요청 파라미터, Accept만으로 만들므로 DB를 읽지 않는다.
+ * 조건부 요청의 값이 그대로면 304로 응답하고 검색하지 않는다.
+ * 버전은 검색 전에 읽는다. 검색 도중 커밋된 변경이 응답에 섞여도 ETag는 이전 버전이라 다음 요청에서 다시 받는다.
+ * 버전은 primary에 커밋될 때 오르지만 검색은 replica에서 읽을 수 있다. 마지막 변경 후 primaryAfterWrite 안에는
+ * replica가 아직 그 변경을 받지 못했을 수 있으므로, replica에서 읽는 응답에는 ETag, Last-Modified를 붙이지 않는다.
+ * 그렇지 않으면 새 버전의 ETag가 이전 본문에 붙어, 다음 변경까지 그 본문이 304로 재사용된다.
+ * 단일 인스턴스를 가정한다. 버전이 프로세스마다 따로 세어지므로({@link MemberDataVersion}) 여러 인스턴스 뒤에서는
+ * 다른 인스턴스의 변경을 모른 채 304로 응답할 수 있다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchETags {
+	private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+	private final MemberDataVersion dataVersion;
+	private final ReplicaDataSourceProperties replicaProperties;
+
+	/**
+	 * ETag, Last-Modified 헤더를 설정하고, 클라이언트가 가진 응답이 최신이면 true를 돌려준다.
+	 * true면 스프링이 본문 없이 304로 응답하므로 핸들러는 바로 null을 반환한다.
+	 */
+	public boolean checkNotModified(WebRequest request) {
+		// 같은 URL을 Accept에 따라 JSON, Smile, CBOR로, Accept-Encoding에 따라 압축해 보내므로
+		// 공유 캐시가 다른 표현을 내주지 않도록 304에도 함께 보낸다
+		if (request instanceof NativeWebRequest) {
+			HttpServletResponse response = ((NativeWebRequest)request).getNativeResponse(HttpServletResponse.class);
+			if (response != null) {
+				response.addHeader(HttpHeaders.VARY, VARY);
+			}
+		}
+		MemberDataVersion.Snapshot snapshot = dataVersion.snapshot();
+		if (mayReadBeforeReplication(snapshot)) {
+			return false;
+		}
+		return request.checkNotModified(etag(snapshot.getVersion(), request), lastModified(snapshot));
+	}
+
+	/**
+	 * 이 요청의 검색이 replica에서 읽고, 마지막 변경이 아직 replica에 없을 수 있으면 true
+	 */
+	private boolean mayReadBeforeReplication(MemberDataVersion.Snapshot snapshot) {
+		if (!replicaProperties.isEnabled() || ReadYourWrites.routesToPrimary(replicaProperties)) {
+			return false;
+		}
+		long sinceLastModified = System.currentTimeMillis() - snapshot.getLastModified();
+		return sinceLastModified < replicaProperties.getPrimaryAfterWrite().toMillis();
+	}
+
+	private String etag(long version, WebRequest request) {
+		// 같은 URL이라도 Accept에 따라 JSON, Smile, CBOR로 응답하므로 함께 넣는다
+		StringBuilder representation = new StringBuilder();
+		for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+			representation.append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()))
+				.append('&');
+		}
+		representation.append(request.getHeader(HttpHeaders.ACCEPT));
+		String digest = DigestUtils.md5DigestAsHex(representation.toString().getBytes(StandardCharsets.UTF_8));
+		// 압축 여부와 관계없이 같은 내용이므로 약한 ETag
+		return "W/\"" + Long.toHexString(dataVersion.getEpoch()) + "-" + version + "-" + digest + "\"";
+	}
+
+	/**
+	 * HTTP 날짜는 초 단위라, 마지막 변경과 같은 초 안에 또 변경이 생기면 If-Modified-Since로는 구분할 수 없다.
+	 * 그 초가 지나기 전에는 Last-Modified를 보내지 않고 ETag로만 비교한다.
+	 */
+	private static long lastModified(MemberDataVersion.Snapshot snapshot) {
+		long lastModifiedSecond = snapshot.getLastModified() / 1000;
+		return System.currentTimeMillis() / 1000 > lastModifiedSecond ? lastModifiedSecond * 1000 : -1;
+	}
+}
@@ -0,0 +1,29 @@
+package study.querydsl.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Accept: application/x-jackson-smile 또는 application/cbor 요청에 바이너리로 응답한다.
+ * 스프링 부트가 설정한 Jackson2ObjectMapperBuilder로 만들어 JSON과 같은 직렬화 설정(모듈, 날짜 형식 등)을 쓴다.
+ * 같은 타입의 기본 컨버터 자리를 대신하므로 JSON 컨버터 뒤에 놓여, Accept가 없거나 *&#47;*이면 계속 JSON으로 응답한다.
+ */
+@Configuration
+public class ResponseEncodingConfig {
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+	}
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+	}
+}
@@ -0,0 +1,24 @@
+package study.querydsl.controller;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.TeamStatsRepository;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamStatsController {
+	private final TeamStatsRepository teamStatsRepository;
+
+	/**
+	 * 팀별 회원 수와 나이 합계/평균/최소/최대. team_stats 롤업에서 팀 수만큼만 읽는다.
+	 */
+	@GetMapping("/teams/stats")
+	public List<TeamStatsDto> teamStats() {
+		return teamStatsRepository.findAll();
+	}
+}
@@ -0,0 +1,117 @@
+package study.querydsl.datasource;
+
+import java.util.function.Supplier;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 호출자별 read-your-writes 기한(epoch millis). 기한 전까지 그 호출자의 읽기 전용 트랜잭션은 primary에서 읽는다.
+ * 웹 요청은 쿠키로 기한을 돌려줘 같은 클라이언트의 다음 요청까지 이어지고, 웹 요청이 아닌 스레드는 스레드별로 기억한다.
+ * 다른 클라이언트나 다른 스레드의 쓰기는 기한에 영향을 주지 않는다.
+ */
+public final class ReadYourWrites {
+	static final String COOKIE = "primary-until";
+	private static final String ATTRIBUTE = ReadYourWrites.class.getName();
+	private static final ThreadLocal<Long> PRIMARY_UNTIL = new ThreadLocal<>();
+
+	private ReadYourWrites() {
+	}
+
+	/**
+	 * 현재 호출자의 기한. 쓰기가 없었으면 0
+	 */
+	public static long primaryUntil() {
+		ServletRequestAttributes attributes = currentRequest();
+		if (attributes == null) {
+			Long primaryUntil = PRIMARY_UNTIL.get();
+			return primaryUntil != null ? primaryUntil : 0;
+		}
+		HttpServletRequest request = attributes.getRequest();
+		Object primaryUntil = request.getAttribute(ATTRIBUTE);
+		if (primaryUntil == null) {
+			primaryUntil = fromCookie(request);
+			request.setAttribute(ATTRIBUTE, primaryUntil);
+		}
+		return (Long)primaryUntil;
+	}
+
+	/**
+	 * 요청 스레드에서 읽어 둔 기한을 다른 스레드에서 이어 받아 실행한다. 비동기 검색 실행기가 쓴다.
+	 */
+	public static <T> T callWith(long primaryUntil, Supplier<T> task) {
+		Long previous = PRIMARY_UNTIL.get();
+		PRIMARY_UNTIL.set(primaryUntil);
+		try {
+			return task.get();
+		} finally {
+			if (previous != null) {
+				PRIMARY_UNTIL.set(previous);
+			} else {
+				PRIMARY_UNTIL.remove();
+			}
+		}
+	}
+
+	/**
+	 * 현재 호출자의 읽기 전용 트랜잭션이 {@link ReplicaRoutingDataSource}에서 primary로 가는지.
+	 * replica를 쓰지 않으면 false
+	 */
+	public static boolean routesToPrimary(ReplicaDataSourceProperties properties) {
+		long windowMillis = properties.getPrimaryAfterWrite().toMillis();
+		return properties.isEnabled() && windowMillis > 0 && requiresPrimary(windowMillis);
+	}
+
+	/**
+	 * 쿠키는 클라이언트가 바꿀 수 있으므로 window보다 먼 기한은 믿지 않는다
+	 */
+	static boolean requiresPrimary(long windowMillis) {
+		long remaining = primaryUntil() - System.currentTimeMillis();
+		return remaining > 0 && remaining <= windowMillis;
+	}
+
+	static void recordWrite(long windowMillis) {
+		long primaryUntil = System.currentTimeMillis() + windowMillis;
+		ServletRequestAttributes attributes = currentRequest();
+		if (attributes == null) {
+			PRIMARY_UNTIL.set(primaryUntil);
+			return;
+		}
+		attributes.getRequest().setAttribute(ATTRIBUTE, primaryUntil);
+		HttpServletResponse response = attributes.getResponse();
+		if (response != null && !response.isCommitted()) {
+			Cookie cookie = new Cookie(COOKIE, Long.toString(primaryUntil));
+			cookie.setPath("/");
+			cookie.setHttpOnly(true);
+			cookie.setMaxAge((int)Math.max(1, (windowMillis + 999) / 1000));
+			response.addCookie(cookie);
+		}
+	}
+
+	private static ServletRequestAttributes currentRequest() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return attributes instanceof ServletRequestAttributes ? (ServletRequestAttributes)attributes : null;
+	}
+
+	private static long fromCookie(HttpServletRequest request) {
+		Cookie[] cookies = request.getCookies();
+		if (cookies == null) {
+			return 0L;
+		}
+		for (Cookie cookie : cookies) {
+			if (COOKIE.equals(cookie.getName())) {
+				try {
+					return Long.parseLong(cookie.getValue());
+				} catch (NumberFormatException e) {
+					return 0L;
+				}
+			}
+		}
+		return 0L;
+	}
+}
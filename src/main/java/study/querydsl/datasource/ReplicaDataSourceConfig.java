@@ -0,0 +1,58 @@
+package study.querydsl.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * member.datasource.replica.enabled=true 이면 spring.datasource를 primary로,
+ * member.datasource.replica를 replica로 하는 라우팅 DataSource를 등록한다. 꺼져 있으면 스프링 부트 기본 DataSource를 쓴다.
+ * 두 커넥션 풀은 빈으로 등록하지 않아 p6spy 같은 DataSource 데코레이터가 라우팅 DataSource에만 한 번 적용된다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+	@Bean
+	public DataSource dataSource(DataSourceProperties primaryProperties,
+		ReplicaDataSourceProperties replicaProperties, Environment environment) {
+		HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+			.type(HikariDataSource.class)
+			.build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		primary.setPoolName("primary");
+
+		HikariDataSource replica = DataSourceBuilder.create()
+			.type(HikariDataSource.class)
+			.driverClassName(replicaProperties.getDriverClassName())
+			.url(replicaProperties.getUrl())
+			.username(replicaProperties.getUsername())
+			.password(replicaProperties.getPassword())
+			.build();
+		replica.setPoolName("replica");
+		replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+		replica.setReadOnly(true);
+
+		return new ReplicaRoutingDataSource(primary, replica, replicaProperties.getPrimaryAfterWrite());
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer writeRecordingStatementInspector(
+		ReplicaDataSourceProperties replicaProperties) {
+		long primaryAfterWriteMillis = replicaProperties.getPrimaryAfterWrite().toMillis();
+		return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR,
+			WriteRecordingStatementInspector.wrapping(primaryAfterWriteMillis,
+				hibernateProperties.get(AvailableSettings.STATEMENT_INSPECTOR)));
+	}
+}
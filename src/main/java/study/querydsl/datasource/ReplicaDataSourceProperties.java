@@ -0,0 +1,29 @@
+package study.querydsl.datasource;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "member.datasource.replica")
+@Getter @Setter
+public class ReplicaDataSourceProperties {
+	/**
+	 * false면 spring.datasource 하나만 사용한다
+	 */
+	private boolean enabled = false;
+	private String url;
+	private String username = "sa";
+	private String password = "";
+	private String driverClassName = "org.h2.Driver";
+	private int maximumPoolSize = 10;
+	/**
+	 * 쓰기 트랜잭션을 커밋한 호출자(웹 클라이언트나 스레드)는 이 시간 동안 읽기 전용 트랜잭션도 primary에서 읽는다.
+	 * 복제 지연보다 길게 잡는다. 0이면 항상 replica에서 읽는다.
+	 */
+	private Duration primaryAfterWrite = Duration.ofSeconds(1);
+}
@@ -0,0 +1,68 @@
+package study.querydsl.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기 전용 트랜잭션은 replica로, 나머지는 primary로 보낸다.
+ * JpaTransactionManager는 readOnly 플래그를 설정하기 전에 커넥션을 얻으므로,
+ * 실제 커넥션은 첫 SQL을 실행할 때 얻도록 LazyConnectionDataSourceProxy로 감싼다.
+ * 복제 지연 때문에 방금 커밋한 변경이 replica에 없을 수 있어, 쓰기를 커밋한 호출자의 읽기는 primaryAfterWrite 동안
+ * primary로 보낸다. 쓰기는 {@link WriteRecordingStatementInspector}가, 호출자별 기한은 {@link ReadYourWrites}가 기록한다.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+	private static final String PRIMARY = "primary";
+	private static final String REPLICA = "replica";
+
+	private final DataSource primary;
+	private final DataSource replica;
+
+	public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration primaryAfterWrite) {
+		super(new Router(primary, replica, primaryAfterWrite.toMillis()));
+		this.primary = primary;
+		this.replica = replica;
+	}
+
+	@Override
+	public void close() throws Exception {
+		try {
+			closeIfPossible(replica);
+		} finally {
+			closeIfPossible(primary);
+		}
+	}
+
+	private static void closeIfPossible(DataSource dataSource) throws Exception {
+		if (dataSource instanceof AutoCloseable) {
+			((AutoCloseable)dataSource).close();
+		}
+	}
+
+	private static class Router extends AbstractRoutingDataSource {
+		private final long primaryAfterWriteMillis;
+
+		Router(DataSource primary, DataSource replica, long primaryAfterWriteMillis) {
+			this.primaryAfterWriteMillis = primaryAfterWriteMillis;
+			setTargetDataSources(Map.of(PRIMARY, primary, REPLICA, replica));
+			setDefaultTargetDataSource(primary);
+			afterPropertiesSet();
+		}
+
+		@Override
+		protected Object determineCurrentLookupKey() {
+			if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+				return PRIMARY;
+			}
+			if (primaryAfterWriteMillis > 0 && ReadYourWrites.requiresPrimary(primaryAfterWriteMillis)) {
+				return PRIMARY;
+			}
+			return REPLICA;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package study.querydsl.datasource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.BeanUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Hibernate가 실행하는 SQL 중 쓰기(insert, update, delete, merge)를 보고, 그 트랜잭션이 커밋되면
+ * 호출자의 read-your-writes 기한을 기록한다. 엔티티 변경뿐 아니라 JPQL 벌크 변경과 네이티브 쿼리도 포함한다.
+ * 쓰기 없이 커밋되거나 롤백된 트랜잭션은 기록하지 않는다. 트랜잭션 밖의 쓰기는 자동 커밋이므로 바로 기록한다.
+ * 이미 설정된 statement_inspector가 있으면 그 뒤에 이어서 실행한다.
+ */
+class WriteRecordingStatementInspector implements StatementInspector {
+	private final long primaryAfterWriteMillis;
+	private final StatementInspector delegate;
+
+	WriteRecordingStatementInspector(long primaryAfterWriteMillis, StatementInspector delegate) {
+		this.primaryAfterWriteMillis = primaryAfterWriteMillis;
+		this.delegate = delegate;
+	}
+
+	/**
+	 * hibernate.session_factory.statement_inspector 값(인스턴스, 클래스, 클래스 이름)을 감싼다
+	 */
+	static WriteRecordingStatementInspector wrapping(long primaryAfterWriteMillis, Object configured) {
+		if (configured == null || configured instanceof StatementInspector) {
+			return new WriteRecordingStatementInspector(primaryAfterWriteMillis, (StatementInspector)configured);
+		}
+		try {
+			Class<?> type = configured instanceof Class
+				? (Class<?>)configured
+				: ClassUtils.forName(configured.toString(), WriteRecordingStatementInspector.class.getClassLoader());
+			StatementInspector delegate = (StatementInspector)BeanUtils.instantiateClass(type);
+			return new WriteRecordingStatementInspector(primaryAfterWriteMillis, delegate);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("cannot load statement inspector " + configured, e);
+		}
+	}
+
+	@Override
+	public String inspect(String sql) {
+		String inspected = delegate != null ? delegate.inspect(sql) : sql;
+		if (primaryAfterWriteMillis > 0 && isWrite(inspected)) {
+			recordWrite();
+		}
+		return inspected;
+	}
+
+	private void recordWrite() {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			ReadYourWrites.recordWrite(primaryAfterWriteMillis);
+			return;
+		}
+		// 트랜잭션마다 한 번만 등록한다. REQUIRES_NEW로 중단된 바깥 트랜잭션의 동기화는 목록에 없다
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof CommitRecorder) {
+				return;
+			}
+		}
+		TransactionSynchronizationManager.registerSynchronization(new CommitRecorder());
+	}
+
+	/**
+	 * use_sql_comments가 붙이는 앞쪽 주석을 건너뛰고 첫 키워드를 본다
+	 */
+	static boolean isWrite(String sql) {
+		int i = 0;
+		while (i < sql.length()) {
+			if (Character.isWhitespace(sql.charAt(i))) {
+				i++;
+			} else if (sql.startsWith("/*", i)) {
+				int end = sql.indexOf("*/", i + 2);
+				if (end < 0) {
+					return false;
+				}
+				i = end + 2;
+			} else {
+				break;
+			}
+		}
+		return startsWithKeyword(sql, i, "insert") || startsWithKeyword(sql, i, "update")
+			|| startsWithKeyword(sql, i, "delete") || startsWithKeyword(sql, i, "merge");
+	}
+
+	private static boolean startsWithKeyword(String sql, int offset, String keyword) {
+		return sql.regionMatches(true, offset, keyword, 0, keyword.length());
+	}
+
+	private class CommitRecorder implements TransactionSynchronization {
+		@Override
+		public void afterCompletion(int status) {
+			if (status == STATUS_COMMITTED) {
+				ReadYourWrites.recordWrite(primaryAfterWriteMillis);
+			}
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package study.querydsl.dto;
+
+/**
+ * 커서 토큰을 해석할 수 없거나 다른 정렬로 발급된 커서다.
+ */
+public class InvalidCursorException extends InvalidSearchRequestException {
+	public InvalidCursorException(String message) {
+		super(message);
+	}
+
+	public InvalidCursorException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
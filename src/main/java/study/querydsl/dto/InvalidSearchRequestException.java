@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+/**
+ * 클라이언트가 보낸 검색 요청 값(페이지 크기, 배치 조건, 커서)이 잘못되었다. 컨트롤러는 이 예외만 400으로 응답하므로
+ * 메시지에 서버 내부 정보나 요청 값을 그대로 담지 않는다.
+ */
+public class InvalidSearchRequestException extends IllegalArgumentException {
+	public InvalidSearchRequestException(String message) {
+		super(message);
+	}
+
+	public InvalidSearchRequestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
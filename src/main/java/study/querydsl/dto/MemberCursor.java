@@ -0,0 +1,63 @@
+package study.querydsl.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import lombok.Getter;
+
+/**
+ * keyset 페이징의 마지막 위치. 클라이언트에는 Base64 토큰으로만 노출한다.
+ */
+@Getter
+public class MemberCursor {
+	private static final String DELIMITER = ":";
+
+	private final MemberCursorSort sort;
+	private final Integer age;
+	private final Long id;
+
+	private MemberCursor(MemberCursorSort sort, Integer age, Long id) {
+		this.sort = sort;
+		this.age = age;
+		this.id = id;
+	}
+
+	public static MemberCursor after(MemberCursorSort sort, MemberTeamDto last) {
+		Integer age = sort == MemberCursorSort.AGE ? last.getAge() : null;
+		return new MemberCursor(sort, age, last.getMemberId());
+	}
+
+	public String encode() {
+		String raw = sort.name() + DELIMITER + (age == null ? "" : age) + DELIMITER + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @throws InvalidCursorException 토큰 형식이 틀렸거나 expectedSort가 아닌 정렬로 발급된 커서
+	 */
+	public static MemberCursor decode(String token, MemberCursorSort expectedSort) {
+		MemberCursor cursor = parse(token);
+		if (cursor.sort != expectedSort) {
+			throw new InvalidCursorException("cursor was issued for sort " + cursor.sort + ", not " + expectedSort);
+		}
+		return cursor;
+	}
+
+	private static MemberCursor parse(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = raw.split(DELIMITER, -1);
+			if (parts.length != 3) {
+				throw new IllegalArgumentException();
+			}
+			MemberCursorSort sort = MemberCursorSort.valueOf(parts[0]);
+			Integer age = parts[1].isEmpty() ? null : Integer.valueOf(parts[1]);
+			if (sort == MemberCursorSort.AGE && age == null) {
+				throw new IllegalArgumentException();
+			}
+			return new MemberCursor(sort, age, Long.valueOf(parts[2]));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidCursorException("invalid cursor", e);
+		}
+	}
+}
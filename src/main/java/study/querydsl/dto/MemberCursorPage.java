@@ -0,0 +1,15 @@
+package study.querydsl.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class MemberCursorPage {
+	private final List<MemberTeamDto> content;
+	private final String nextCursor;
+
+	public boolean isHasNext() {
+		return nextCursor != null;
+	}
+}
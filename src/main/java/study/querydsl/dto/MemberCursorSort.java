@@ -0,0 +1,6 @@
+package study.querydsl.dto;
+
+public enum MemberCursorSort {
+	ID,
+	AGE
+}
@@ -1,11 +1,69 @@
 package study.querydsl.dto;
 
+import static org.springframework.util.StringUtils.*;
+
 import lombok.Data;
 
 @Data
 public class MemberSearchCondition {
+	public static final int USERNAME = 1;
+	public static final int TEAM_NAME = 1 << 1;
+	public static final int AGE_GOE = 1 << 2;
+	public static final int AGE_LOE = 1 << 3;
+	public static final int USERNAME_STARTS_WITH = 1 << 4;
+	public static final int USERNAME_CONTAINS = 1 << 5;
+	public static final int SHAPE_COUNT = 1 << 6;
+
 	private String username;
+	/**
+	 * username 접두어. username 인덱스를 범위로 읽는다.
+	 */
+	private String usernameStartsWith;
+	/**
+	 * username 부분 문자열. 3글자 이상이면 member_username_gram 트라이그램 인덱스로 후보를 찾는다.
+	 */
+	private String usernameContains;
 	private String teamName;
 	private Integer ageGoe;
 	private Integer ageLoe;
+
+	/**
+	 * 검색 결과에 영향을 주지 않는 차이(빈 문자열 등)를 제거한 사본. 캐시 키로 사용한다.
+	 */
+	public MemberSearchCondition normalized() {
+		MemberSearchCondition normalized = new MemberSearchCondition();
+		normalized.setUsername(hasText(username) ? username : null);
+		normalized.setUsernameStartsWith(hasText(usernameStartsWith) ? usernameStartsWith : null);
+		normalized.setUsernameContains(hasText(usernameContains) ? usernameContains : null);
+		normalized.setTeamName(hasText(teamName) ? teamName : null);
+		normalized.setAgeGoe(ageGoe);
+		normalized.setAgeLoe(ageLoe);
+		return normalized;
+	}
+
+	/**
+	 * 값이 지정된 조건의 조합. 같은 shape의 조건은 값만 다르고 쿼리 모양은 같다.
+	 */
+	public int shape() {
+		int shape = 0;
+		if (hasText(username)) {
+			shape |= USERNAME;
+		}
+		if (hasText(usernameStartsWith)) {
+			shape |= USERNAME_STARTS_WITH;
+		}
+		if (hasText(usernameContains)) {
+			shape |= USERNAME_CONTAINS;
+		}
+		if (hasText(teamName)) {
+			shape |= TEAM_NAME;
+		}
+		if (ageGoe != null) {
+			shape |= AGE_GOE;
+		}
+		if (ageLoe != null) {
+			shape |= AGE_LOE;
+		}
+		return shape;
+	}
 }
@@ -0,0 +1,31 @@
+package study.querydsl.dto;
+
+import com.querydsl.core.annotations.QueryProjection;
+
+import lombok.Data;
+
+@Data
+public class TeamStatsDto {
+	private Long teamId;
+	private String teamName;
+	private long memberCount;
+	private long ageSum;
+	/**
+	 * 회원이 없는 팀은 ageAvg, ageMin, ageMax 모두 null
+	 */
+	private Double ageAvg;
+	private Integer ageMin;
+	private Integer ageMax;
+
+	@QueryProjection
+	public TeamStatsDto(Long teamId, String teamName, long memberCount, long ageSum, Integer ageMin,
+		Integer ageMax) {
+		this.teamId = teamId;
+		this.teamName = teamName;
+		this.memberCount = memberCount;
+		this.ageSum = ageSum;
+		this.ageAvg = memberCount > 0 ? (double)ageSum / memberCount : null;
+		this.ageMin = ageMin;
+		this.ageMax = ageMax;
+	}
+}
@@ -4,9 +4,15 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -15,13 +21,24 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
+@NamedEntityGraph(name = Member.WITH_TEAM, attributeNodes = @NamedAttributeNode("team"))
+@Table(indexes = {
+	@Index(name = "idx_member_username", columnList = "username"),
+	@Index(name = "idx_member_team_age", columnList = "team_id, age"),
+	@Index(name = "idx_member_age", columnList = "age")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
+	/**
+	 * team을 함께 읽는 엔티티 그래프. 회원 목록에서 팀을 참조하는 조회에 사용한다.
+	 */
+	public static final String WITH_TEAM = "Member.withTeam";
 
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+	@SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
 	@Column(name = "member_id")
 	private Long id;
 
@@ -0,0 +1,45 @@
+package study.querydsl.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 검색용으로 member와 team을 미리 합쳐 둔 읽기 모델. team join 없이 MemberTeamDto를 만들 수 있다.
+ * 애플리케이션에서 직접 쓰지 않고 {@link study.querydsl.event.MemberTeamViewSynchronizer}가 갱신한다.
+ * 읽기 모델은 커밋 직전에 맞춰지므로 member, team 테이블과 동기화(@Synchronize)하지 않는다. 이 테이블을 읽어도 대기 중인 변경을 flush하지 않는다.
+ */
+@Entity
+@Immutable
+@Table(name = "member_team", indexes = {
+	@Index(name = "idx_member_team_view_username", columnList = "username"),
+	@Index(name = "idx_member_team_view_team_name_age", columnList = "team_name, age"),
+	@Index(name = "idx_member_team_view_age", columnList = "age")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeamView {
+
+	@Id
+	@Column(name = "member_id")
+	private Long memberId;
+
+	private String username;
+	private int age;
+
+	@Column(name = "team_id")
+	private Long teamId;
+
+	@Column(name = "team_name")
+	private String teamName;
+}
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * username 부분 문자열 검색용 트라이그램 색인. username의 모든 3글자 조각마다 한 행이 있다.
+ * 애플리케이션에서 직접 쓰지 않고 {@link study.querydsl.event.MemberUsernameGramSynchronizer}가 갱신한다.
+ */
+@Entity
+@Immutable
+@IdClass(MemberUsernameGram.Key.class)
+@Table(name = "member_username_gram", indexes = @Index(name = "idx_member_username_gram_member",
+	columnList = "member_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberUsernameGram {
+
+	@Id
+	@Column(length = 3)
+	private String gram;
+
+	@Id
+	@Column(name = "member_id")
+	private Long memberId;
+
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class Key implements Serializable {
+		private String gram;
+		private Long memberId;
+	}
+}
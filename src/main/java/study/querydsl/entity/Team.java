@@ -3,12 +3,21 @@ package study.querydsl.entity;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -17,16 +26,23 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team")
+@BatchSize(size = 100)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team {
 
-	@Id @GeneratedValue
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+	@SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
 	@Column(name = "team_id")
 	private Long id;
 	private String name;
 
+	@BatchSize(size = 100)
 	@OneToMany(mappedBy = "team", cascade = CascadeType.ALL)
 	private List<Member> members = new ArrayList<>();
 
@@ -0,0 +1,46 @@
+package study.querydsl.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import org.hibernate.annotations.Immutable;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 팀별 회원 수와 나이 합계/최소/최대를 미리 집계해 둔 롤업 테이블. 팀 통계를 member 전체 group by 대신 팀 수만큼만 읽는다.
+ * 애플리케이션에서 직접 쓰지 않고 {@link study.querydsl.event.TeamStatsSynchronizer}가 갱신한다.
+ * 평균은 저장하지 않고 age_sum / member_count로 계산한다.
+ */
+@Entity
+@Immutable
+@Table(name = "team_stats")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+	@Id
+	@Column(name = "team_id")
+	private Long teamId;
+
+	@Column(name = "member_count", nullable = false)
+	private long memberCount;
+
+	@Column(name = "age_sum", nullable = false)
+	private long ageSum;
+
+	/**
+	 * 회원이 없는 팀은 null
+	 */
+	@Column(name = "age_min")
+	private Integer ageMin;
+
+	@Column(name = "age_max")
+	private Integer ageMax;
+}
@@ -0,0 +1,25 @@
+package study.querydsl.event;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.hibernate.event.spi.EventSource;
+
+/**
+ * 세션(트랜잭션)마다 한 번만 트랜잭션 종료 콜백을 등록한다.
+ * 대량 insert처럼 이벤트가 많이 발생해도 ActionQueue에 콜백이 쌓이지 않게 한다.
+ */
+public class AfterCompletionCallbacks {
+	private final Set<EventSource> registered = ConcurrentHashMap.newKeySet();
+
+	public void registerOnce(EventSource session, Consumer<Boolean> callback) {
+		if (!registered.add(session)) {
+			return;
+		}
+		session.getActionQueue().registerProcess((success, completedSession) -> {
+			registered.remove(session);
+			callback.accept(success);
+		});
+	}
+}
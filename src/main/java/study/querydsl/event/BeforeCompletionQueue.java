@@ -0,0 +1,50 @@
+package study.querydsl.event;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+
+/**
+ * 세션(트랜잭션)마다 변경을 모아 두었다가 커밋 직전, 마지막 flush가 끝난 뒤에 한 번 반영한다. 롤백되면 버린다.
+ * 반영은 커밋 전에 같은 커넥션에서 실행되므로 실패하면 트랜잭션도 롤백된다.
+ */
+class BeforeCompletionQueue<T> {
+	private final Map<EventSource, T> pending = new ConcurrentHashMap<>();
+	private final Supplier<T> factory;
+	private final BiConsumer<SessionImplementor, T> apply;
+
+	BeforeCompletionQueue(Supplier<T> factory, BiConsumer<SessionImplementor, T> apply) {
+		this.factory = factory;
+		this.apply = apply;
+	}
+
+	T get(EventSource session) {
+		T queued = pending.get(session);
+		if (queued == null) {
+			queued = factory.get();
+			pending.put(session, queued);
+			session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess)completing -> {
+				T changes = pending.remove(session);
+				if (changes != null) {
+					apply.accept(completing, changes);
+				}
+			});
+			session.getActionQueue().registerProcess(
+				(AfterTransactionCompletionProcess)(success, completed) -> pending.remove(session));
+		}
+		return queued;
+	}
+
+	/**
+	 * 모은 변경이 없으면 null
+	 */
+	T peek(EventSource session) {
+		return pending.get(session);
+	}
+}
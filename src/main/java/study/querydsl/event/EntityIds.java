@@ -0,0 +1,23 @@
+package study.querydsl.event;
+
+import org.hibernate.proxy.HibernateProxy;
+
+import study.querydsl.entity.Team;
+
+final class EntityIds {
+	private EntityIds() {
+	}
+
+	/**
+	 * 프록시를 초기화하지 않고 팀 id를 얻는다. 시더처럼 getReference로 연결한 팀도 추가 조회 없이 처리된다.
+	 */
+	static Long teamIdOf(Team team) {
+		if (team == null) {
+			return null;
+		}
+		if (team instanceof HibernateProxy) {
+			return (Long)((HibernateProxy)team).getHibernateLazyInitializer().getIdentifier();
+		}
+		return team.getId();
+	}
+}
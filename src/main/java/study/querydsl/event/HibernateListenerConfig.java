@@ -0,0 +1,41 @@
+package study.querydsl.event;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 스프링 빈으로 등록된 Hibernate 이벤트 리스너를 SessionFactory에 연결한다.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HibernateListenerConfig {
+	private final EntityManagerFactory entityManagerFactory;
+	private final ObjectProvider<PostInsertEventListener> postInsertListeners;
+	private final ObjectProvider<PostUpdateEventListener> postUpdateListeners;
+	private final ObjectProvider<PostDeleteEventListener> postDeleteListeners;
+
+	@PostConstruct
+	public void registerListeners() {
+		EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+			.getServiceRegistry()
+			.getService(EventListenerRegistry.class);
+
+		postInsertListeners.orderedStream()
+			.forEach(listener -> registry.appendListeners(EventType.POST_INSERT, listener));
+		postUpdateListeners.orderedStream()
+			.forEach(listener -> registry.appendListeners(EventType.POST_UPDATE, listener));
+		postDeleteListeners.orderedStream()
+			.forEach(listener -> registry.appendListeners(EventType.POST_DELETE, listener));
+	}
+}
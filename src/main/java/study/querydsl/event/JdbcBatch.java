@@ -0,0 +1,36 @@
+package study.querydsl.event;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.Collection;
+
+import org.hibernate.engine.spi.SessionImplementor;
+
+final class JdbcBatch {
+	private JdbcBatch() {
+	}
+
+	/**
+	 * 같은 문장을 행마다 다른 값으로 JDBC 배치 한 번에 실행하고 행별 변경 건수를 돌려준다. 행이 없으면 실행하지 않는다.
+	 */
+	static int[] execute(SessionImplementor session, String sql, Collection<Object[]> rows) {
+		if (rows.isEmpty()) {
+			return new int[0];
+		}
+		return session.doReturningWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				for (Object[] row : rows) {
+					for (int i = 0; i < row.length; i++) {
+						if (row[i] == null) {
+							statement.setNull(i + 1, Types.NULL);
+						} else {
+							statement.setObject(i + 1, row[i]);
+						}
+					}
+					statement.addBatch();
+				}
+				return statement.executeBatch();
+			}
+		});
+	}
+}
@@ -0,0 +1,88 @@
+package study.querydsl.event;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.search.MemberColumnarIndex;
+import study.querydsl.search.MemberIndexChanges;
+import study.querydsl.search.MemberRow;
+
+/**
+ * Member, Team 저장/변경/삭제를 세션별로 모았다가 커밋에 성공하면 인메모리 인덱스에 한 번에 반영한다. 롤백되면 버린다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberColumnarIndexSynchronizer
+	implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	private final MemberColumnarIndex index;
+	private final Map<EventSource, MemberIndexChanges> pending = new ConcurrentHashMap<>();
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		collect(event.getEntity(), (Long)event.getId(), event.getSession());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		collect(event.getEntity(), (Long)event.getId(), event.getSession());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (!index.isEnabled()) {
+			return;
+		}
+		if (event.getEntity() instanceof Member) {
+			changes(event.getSession()).removeMember((Long)event.getId());
+		} else if (event.getEntity() instanceof Team) {
+			changes(event.getSession()).removeTeam((Long)event.getId());
+		}
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private void collect(Object entity, Long id, EventSource session) {
+		if (!index.isEnabled()) {
+			return;
+		}
+		if (entity instanceof Member) {
+			Member member = (Member)entity;
+			changes(session).putMember(new MemberRow(id, member.getUsername(), member.getAge(),
+				EntityIds.teamIdOf(member.getTeam())));
+		} else if (entity instanceof Team) {
+			changes(session).putTeam(id, ((Team)entity).getName());
+		}
+	}
+
+	private MemberIndexChanges changes(EventSource session) {
+		MemberIndexChanges changes = pending.get(session);
+		if (changes == null) {
+			changes = new MemberIndexChanges();
+			pending.put(session, changes);
+			session.getActionQueue().registerProcess((success, completedSession) -> {
+				MemberIndexChanges committed = pending.remove(session);
+				if (success && committed != null && !committed.isEmpty()) {
+					index.apply(committed);
+				}
+			});
+		}
+		return changes;
+	}
+}
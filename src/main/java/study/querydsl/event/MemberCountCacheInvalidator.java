@@ -0,0 +1,57 @@
+package study.querydsl.event;
+
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberCountCache;
+
+/**
+ * Member, Team 변경 시 count 캐시를 비운다.
+ * flush 시점에 한 번, 트랜잭션 종료 후에 한 번 더 비워서 커밋 전에 다른 요청이 채운 값도 남지 않게 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCountCacheInvalidator
+	implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	private final MemberCountCache countCache;
+	private final AfterCompletionCallbacks afterCompletion = new AfterCompletionCallbacks();
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		invalidate(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		invalidate(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		invalidate(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private void invalidate(Object entity, EventSource session) {
+		if (!(entity instanceof Member) && !(entity instanceof Team)) {
+			return;
+		}
+		countCache.invalidateAll();
+		afterCompletion.registerOnce(session, success -> countCache.invalidateAll());
+	}
+}
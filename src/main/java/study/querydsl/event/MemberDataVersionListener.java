@@ -0,0 +1,60 @@
+package study.querydsl.event;
+
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberDataVersion;
+
+/**
+ * Member, Team 변경이 커밋되면 데이터 버전을 올린다. 롤백된 변경은 버전을 올리지 않는다.
+ * 트랜잭션마다 한 번만 올리므로 대량 insert도 버전이 한 번만 바뀐다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberDataVersionListener
+	implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	private final MemberDataVersion dataVersion;
+	private final AfterCompletionCallbacks afterCompletion = new AfterCompletionCallbacks();
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		changed(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		changed(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		changed(event.getEntity(), event.getSession());
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private void changed(Object entity, EventSource session) {
+		if (!(entity instanceof Member) && !(entity instanceof Team)) {
+			return;
+		}
+		afterCompletion.registerOnce(session, success -> {
+			if (success) {
+				dataVersion.increment();
+			}
+		});
+	}
+}
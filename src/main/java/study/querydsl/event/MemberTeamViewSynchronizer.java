@@ -0,0 +1,117 @@
+package study.querydsl.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * Member 저장/변경/삭제와 Team 이름 변경을 member_team 읽기 모델에 반영한다.
+ * 변경은 세션마다 회원/팀별 마지막 상태만 모았다가 커밋 직전에 문장 종류마다 JDBC 배치 한 번으로 실행한다.
+ * 엔티티 변경과 같은 트랜잭션에서 실행되므로 롤백되면 읽기 모델도 함께 롤백되고, 커밋 전에는 읽기 모델에 보이지 않는다.
+ * JPQL 벌크 연산은 이벤트가 발생하지 않으므로 반영되지 않는다. {@link SideTableSync}로 끈 스레드의 변경도 반영하지 않는다.
+ */
+@Component
+public class MemberTeamViewSynchronizer
+	implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	/**
+	 * 팀 이름은 커밋 직전의 team 행에서 읽으므로 같은 트랜잭션의 팀 이름 변경도 반영된다
+	 */
+	private static final String UPSERT_MEMBER = "merge into member_team"
+		+ " (member_id, username, age, team_id, team_name) key (member_id)"
+		+ " values (?, ?, ?, ?, (select t.name from team t where t.team_id = ?))";
+	private static final String DELETE_MEMBER = "delete from member_team where member_id = ?";
+	private static final String RENAME_TEAM = "update member_team set team_name = ? where team_id = ?";
+
+	private final boolean enabled;
+	private final BeforeCompletionQueue<Pending> queue = new BeforeCompletionQueue<>(Pending::new,
+		MemberTeamViewSynchronizer::apply);
+
+	public MemberTeamViewSynchronizer(@Value("${member.search.read-model.enabled:false}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		if (isActive() && event.getEntity() instanceof Member) {
+			queue.get(event.getSession()).upsert((Member)event.getEntity(), (Long)event.getId());
+		}
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (!isActive()) {
+			return;
+		}
+		if (event.getEntity() instanceof Member) {
+			queue.get(event.getSession()).upsert((Member)event.getEntity(), (Long)event.getId());
+		} else if (event.getEntity() instanceof Team) {
+			queue.get(event.getSession()).teamNames.put((Long)event.getId(), ((Team)event.getEntity()).getName());
+		}
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (isActive() && event.getEntity() instanceof Member) {
+			queue.get(event.getSession()).members.put((Long)event.getId(), null);
+		}
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private boolean isActive() {
+		return enabled && !SideTableSync.isSuspended();
+	}
+
+	private static void apply(SessionImplementor session, Pending pending) {
+		List<Object[]> upserts = new ArrayList<>();
+		List<Object[]> deletes = new ArrayList<>();
+		pending.members.forEach((memberId, row) -> {
+			if (row != null) {
+				upserts.add(row);
+			} else {
+				deletes.add(new Object[] {memberId});
+			}
+		});
+		List<Object[]> renames = new ArrayList<>();
+		pending.teamNames.forEach((teamId, name) -> renames.add(new Object[] {name, teamId}));
+
+		JdbcBatch.execute(session, UPSERT_MEMBER, upserts);
+		JdbcBatch.execute(session, DELETE_MEMBER, deletes);
+		JdbcBatch.execute(session, RENAME_TEAM, renames);
+	}
+
+	/**
+	 * 한 세션에서 커밋 전에 반영할 변경
+	 */
+	private static class Pending {
+		/**
+		 * 회원별 마지막 UPSERT_MEMBER 값. 지워진 회원은 null
+		 */
+		final Map<Long, Object[]> members = new LinkedHashMap<>();
+		final Map<Long, String> teamNames = new LinkedHashMap<>();
+
+		void upsert(Member member, Long memberId) {
+			Long teamId = EntityIds.teamIdOf(member.getTeam());
+			members.put(memberId, new Object[] {memberId, member.getUsername(), member.getAge(), teamId, teamId});
+		}
+	}
+}
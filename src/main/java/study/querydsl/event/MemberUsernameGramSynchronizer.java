@@ -0,0 +1,119 @@
+package study.querydsl.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import study.querydsl.entity.Member;
+
+/**
+ * Member 저장/삭제와 username 변경을 member_username_gram 트라이그램 색인에 반영한다.
+ * 변경은 세션마다 회원별 마지막 username만 모았다가 커밋 직전에 삭제, 추가를 각각 JDBC 배치 한 번으로 실행한다.
+ * 엔티티 변경과 같은 트랜잭션에서 실행되므로 롤백되면 색인도 함께 롤백되고, 커밋 전에는 색인에 보이지 않는다.
+ * JPQL 벌크 연산은 이벤트가 발생하지 않으므로 MemberUsernameGramRepository.refresh로 맞춘다.
+ * member.search.username-grams.enabled=false 이거나 {@link SideTableSync}로 끈 스레드에서는 아무것도 하지 않는다.
+ */
+@Component
+public class MemberUsernameGramSynchronizer
+	implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+	private static final String INSERT_GRAMS = "insert into member_username_gram (gram, member_id)"
+		+ " select distinct substring(cast(? as varchar), r.x, 3), cast(? as bigint)"
+		+ " from system_range(1, 255) r where r.x <= length(cast(? as varchar)) - 2";
+	private static final String DELETE_GRAMS = "delete from member_username_gram where member_id = ?";
+
+	private final boolean enabled;
+	private final BeforeCompletionQueue<Pending> queue = new BeforeCompletionQueue<>(Pending::new,
+		MemberUsernameGramSynchronizer::apply);
+
+	public MemberUsernameGramSynchronizer(@Value("${member.search.username-grams.enabled:true}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		if (isActive() && event.getEntity() instanceof Member) {
+			queue.get(event.getSession()).usernames.put((Long)event.getId(), ((Member)event.getEntity()).getUsername());
+		}
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (!isActive() || !(event.getEntity() instanceof Member)) {
+			return;
+		}
+		String username = ((Member)event.getEntity()).getUsername();
+		if (event.getOldState() != null) {
+			int index = event.getPersister().getEntityMetamodel().getPropertyIndex("username");
+			if (Objects.equals(event.getOldState()[index], username)) {
+				return;
+			}
+		}
+		Pending pending = queue.get(event.getSession());
+		pending.replaced.add((Long)event.getId());
+		pending.usernames.put((Long)event.getId(), username);
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (isActive() && event.getEntity() instanceof Member) {
+			Pending pending = queue.get(event.getSession());
+			pending.replaced.add((Long)event.getId());
+			pending.usernames.remove((Long)event.getId());
+		}
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private boolean isActive() {
+		return enabled && !SideTableSync.isSuspended();
+	}
+
+	private static void apply(SessionImplementor session, Pending pending) {
+		List<Object[]> deletes = new ArrayList<>();
+		for (Long memberId : pending.replaced) {
+			deletes.add(new Object[] {memberId});
+		}
+		List<Object[]> inserts = new ArrayList<>();
+		pending.usernames.forEach((memberId, username) -> {
+			if (username != null && username.length() >= 3) {
+				inserts.add(new Object[] {username, memberId, username});
+			}
+		});
+
+		JdbcBatch.execute(session, DELETE_GRAMS, deletes);
+		JdbcBatch.execute(session, INSERT_GRAMS, inserts);
+	}
+
+	/**
+	 * 한 세션에서 커밋 전에 반영할 변경
+	 */
+	private static class Pending {
+		/**
+		 * 이미 색인된 조각을 지워야 하는 회원(username 변경, 삭제)
+		 */
+		final Set<Long> replaced = new LinkedHashSet<>();
+		/**
+		 * 조각을 새로 넣을 회원의 마지막 username
+		 */
+		final Map<Long, String> usernames = new LinkedHashMap<>();
+	}
+}
@@ -0,0 +1,33 @@
+package study.querydsl.event;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드의 member_team, member_username_gram, team_stats 증분 동기화를 잠시 끈다.
+ * 대량 적재처럼 행마다 리스너 문장을 실행하는 대신 끝난 뒤 한 번에 다시 만드는 쪽이 싼 작업에서 쓴다.
+ * 끈 동안 바뀐 행은 호출한 쪽이 직접 맞춰야 한다. 다른 스레드의 변경은 평소대로 동기화된다.
+ */
+public final class SideTableSync {
+	private static final ThreadLocal<Boolean> SUSPENDED = new ThreadLocal<>();
+
+	private SideTableSync() {
+	}
+
+	public static <T> T suspend(Supplier<T> task) {
+		Boolean previous = SUSPENDED.get();
+		SUSPENDED.set(Boolean.TRUE);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				SUSPENDED.remove();
+			} else {
+				SUSPENDED.set(previous);
+			}
+		}
+	}
+
+	public static boolean isSuspended() {
+		return SUSPENDED.get() != null;
+	}
+}
@@ -0,0 +1,241 @@
+package study.querydsl.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * Member 저장/삭제, 나이 변경, 팀 이동(Member.changeTeam)과 Team 저장/삭제를 team_stats 롤업에 증분으로 반영한다.
+ * 변경은 세션마다 팀별 증감으로 합쳐 두었다가, 커밋 직전 마지막 flush가 끝난 뒤 문장 종류마다 JDBC 배치 한 번으로 실행한다.
+ * 회원 수, 나이 합계와 들어오는 나이의 최소/최대는 member를 읽지 않고 롤업 행만 고친다.
+ * 빠지는 나이가 경계값일 수 있는 팀과 이전 상태를 모르는 팀만 이때 member에서 다시 읽는다. member 변경은 이미 실행된 뒤다.
+ * 엔티티 변경과 같은 트랜잭션에서 실행되므로 롤백되면 롤업도 함께 롤백되고, 커밋 전에는 롤업에 보이지 않는다.
+ * JPQL 벌크 연산은 이벤트가 발생하지 않으므로 TeamStatsRepository.refresh로 맞추고,
+ * 남은 오차는 TeamStatsRepository.reconcile이 바로잡는다.
+ * member.team-stats.incremental.enabled=false 이면 회원 변경마다 실행되는 문장이 없어지고, 롤업은 다음 reconcile까지 맞지 않는다.
+ * {@link SideTableSync}로 끈 스레드의 변경은 호출한 쪽이 TeamStatsRepository.refresh로 맞춘다.
+ */
+@Component
+public class TeamStatsSynchronizer implements PostInsertEventListener, PostUpdateEventListener,
+	PostDeleteEventListener {
+
+	private static final String INSERT_TEAM = "insert into team_stats (team_id, member_count, age_sum)"
+		+ " values (?, 0, 0)";
+	private static final String DELETE_TEAM = "delete from team_stats where team_id = ?";
+	/**
+	 * 들어온 나이가 없으면 최소/최대 자리에 null이 온다. least/greatest가 null을 어떻게 다루든 기존 값이 남는다
+	 */
+	private static final String APPLY_DELTA = "update team_stats set member_count = member_count + ?,"
+		+ " age_sum = age_sum + ?, age_min = coalesce(least(age_min, ?), age_min, ?),"
+		+ " age_max = coalesce(greatest(age_max, ?), age_max, ?)"
+		+ " where team_id = ?";
+	/**
+	 * 빠진 나이 범위가 남은 최소/최대에 닿는 팀만 (team_id, age) 인덱스로 다시 읽는다
+	 */
+	private static final String RECOMPUTE_MIN_MAX = "update team_stats"
+		+ " set age_min = (select min(m.age) from member m where m.team_id = ?),"
+		+ " age_max = (select max(m.age) from member m where m.team_id = ?)"
+		+ " where team_id = ? and (age_min >= ? or age_max <= ?)";
+	/**
+	 * 롤업 행이 없거나 이전 상태를 알 수 없을 때 그 팀 하나만 member에서 다시 집계한다. 지워진 팀은 만들지 않는다.
+	 */
+	private static final String REFRESH_TEAM = "merge into team_stats"
+		+ " (team_id, member_count, age_sum, age_min, age_max) key (team_id)"
+		+ " select t.team_id, count(m.member_id), coalesce(sum(m.age), 0), min(m.age), max(m.age)"
+		+ " from team t left outer join member m on m.team_id = t.team_id"
+		+ " where t.team_id = ? group by t.team_id";
+
+	private final boolean enabled;
+	private final BeforeCompletionQueue<Pending> queue = new BeforeCompletionQueue<>(Pending::new,
+		TeamStatsSynchronizer::apply);
+
+	public TeamStatsSynchronizer(@Value("${member.team-stats.incremental.enabled:true}") boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		if (!isActive()) {
+			return;
+		}
+		if (event.getEntity() instanceof Team) {
+			queue.get(event.getSession()).insertedTeams.add((Long)event.getId());
+		} else if (event.getEntity() instanceof Member) {
+			Member member = (Member)event.getEntity();
+			Long teamId = EntityIds.teamIdOf(member.getTeam());
+			if (teamId != null) {
+				queue.get(event.getSession()).delta(teamId).add(member.getAge());
+			}
+		}
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		if (!isActive() || !(event.getEntity() instanceof Member)) {
+			return;
+		}
+		Member member = (Member)event.getEntity();
+		Long teamId = EntityIds.teamIdOf(member.getTeam());
+		Object[] oldState = event.getOldState();
+		if (oldState == null) {
+			// 분리된 엔티티를 select 없이 update하면 이전 팀과 나이를 알 수 없다. 이전 팀은 reconcile에 맡긴다
+			if (teamId != null) {
+				queue.get(event.getSession()).refreshTeams.add(teamId);
+			}
+			return;
+		}
+		Long oldTeamId = EntityIds.teamIdOf((Team)oldState[propertyIndex(event.getPersister(), "team")]);
+		int oldAge = (Integer)oldState[propertyIndex(event.getPersister(), "age")];
+		int age = member.getAge();
+		if (Objects.equals(oldTeamId, teamId) && oldAge == age) {
+			return;
+		}
+		Pending pending = queue.get(event.getSession());
+		if (oldTeamId != null) {
+			pending.delta(oldTeamId).remove(oldAge);
+		}
+		if (teamId != null) {
+			pending.delta(teamId).add(age);
+		}
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		if (!isActive()) {
+			return;
+		}
+		if (event.getEntity() instanceof Team) {
+			queue.get(event.getSession()).deleted((Long)event.getId());
+		} else if (event.getEntity() instanceof Member) {
+			// 엔티티 필드가 아니라 삭제된 행의 상태로 뺀다
+			Object[] deletedState = event.getDeletedState();
+			Long teamId = EntityIds.teamIdOf((Team)deletedState[propertyIndex(event.getPersister(), "team")]);
+			if (teamId != null) {
+				queue.get(event.getSession()).delta(teamId)
+					.remove((Integer)deletedState[propertyIndex(event.getPersister(), "age")]);
+			}
+		}
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return false;
+	}
+
+	private boolean isActive() {
+		return enabled && !SideTableSync.isSuspended();
+	}
+
+	/**
+	 * 새 팀의 롤업 행을 먼저 만들고, 증감을 더한 뒤, 경계값이 빠진 팀과 롤업 행이 없던 팀을 다시 읽고, 지워진 팀을 지운다
+	 */
+	private static void apply(SessionImplementor session, Pending pending) {
+		List<Object[]> inserts = new ArrayList<>();
+		pending.insertedTeams.forEach(teamId -> inserts.add(new Object[] {teamId}));
+		JdbcBatch.execute(session, INSERT_TEAM, inserts);
+
+		List<Long> deltaTeams = new ArrayList<>(pending.deltas.keySet());
+		List<Object[]> deltas = new ArrayList<>();
+		for (Long teamId : deltaTeams) {
+			Delta delta = pending.deltas.get(teamId);
+			deltas.add(new Object[] {delta.count, delta.ageSum, delta.addedMin, delta.addedMin, delta.addedMax,
+				delta.addedMax, teamId});
+		}
+		int[] updated = JdbcBatch.execute(session, APPLY_DELTA, deltas);
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] == 0) {
+				pending.refreshTeams.add(deltaTeams.get(i));
+			}
+		}
+
+		List<Object[]> recomputes = new ArrayList<>();
+		pending.deltas.forEach((teamId, delta) -> {
+			if (delta.removedMin != null && !pending.refreshTeams.contains(teamId)) {
+				recomputes.add(new Object[] {teamId, teamId, teamId, delta.removedMin, delta.removedMax});
+			}
+		});
+		JdbcBatch.execute(session, RECOMPUTE_MIN_MAX, recomputes);
+
+		List<Object[]> refreshes = new ArrayList<>();
+		pending.refreshTeams.forEach(teamId -> refreshes.add(new Object[] {teamId}));
+		JdbcBatch.execute(session, REFRESH_TEAM, refreshes);
+
+		List<Object[]> deletes = new ArrayList<>();
+		pending.deletedTeams.forEach(teamId -> deletes.add(new Object[] {teamId}));
+		JdbcBatch.execute(session, DELETE_TEAM, deletes);
+	}
+
+	private static int propertyIndex(EntityPersister persister, String property) {
+		return persister.getEntityMetamodel().getPropertyIndex(property);
+	}
+
+	/**
+	 * 한 세션에서 커밋 전에 반영할 변경
+	 */
+	private static class Pending {
+		final Set<Long> insertedTeams = new LinkedHashSet<>();
+		final Set<Long> deletedTeams = new LinkedHashSet<>();
+		final Map<Long, Delta> deltas = new LinkedHashMap<>();
+		/**
+		 * 증감 대신 member에서 다시 집계할 팀
+		 */
+		final Set<Long> refreshTeams = new LinkedHashSet<>();
+
+		Delta delta(Long teamId) {
+			return deltas.computeIfAbsent(teamId, key -> new Delta());
+		}
+
+		void deleted(Long teamId) {
+			// 같은 트랜잭션에서 만든 팀은 롤업 행도 만들지 않는다
+			if (!insertedTeams.remove(teamId)) {
+				deletedTeams.add(teamId);
+			}
+			deltas.remove(teamId);
+			refreshTeams.remove(teamId);
+		}
+	}
+
+	/**
+	 * 한 팀의 회원 수, 나이 합계 증감과 들어온/빠진 나이의 [최소, 최대]
+	 */
+	private static class Delta {
+		long count;
+		long ageSum;
+		Integer addedMin;
+		Integer addedMax;
+		Integer removedMin;
+		Integer removedMax;
+
+		void add(int age) {
+			count++;
+			ageSum += age;
+			addedMin = addedMin == null ? age : Math.min(addedMin, age);
+			addedMax = addedMax == null ? age : Math.max(addedMax, age);
+		}
+
+		void remove(int age) {
+			count--;
+			ageSum -= age;
+			removedMin = removedMin == null ? age : Math.min(removedMin, age);
+			removedMax = removedMax == null ? age : Math.max(removedMax, age);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package study.querydsl.index;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import study.querydsl.dto.MemberCursorSort;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class IndexAdvice {
+	private final String shape;
+	private final MemberCursorSort sort;
+	private final long executions;
+	private final String sql;
+	private final String plan;
+	/**
+	 * member 테이블을 읽을 때 사용한 인덱스. 전체 스캔이면 null
+	 */
+	private final String usedIndex;
+	/**
+	 * 제안하는 인덱스 컬럼. 이미 인덱스를 쓰고 있거나 같은 선두 컬럼의 인덱스가 있으면 비어 있다.
+	 */
+	private final List<String> proposedColumns;
+	private final String ddl;
+
+	public boolean isFullScan() {
+		return usedIndex == null;
+	}
+}
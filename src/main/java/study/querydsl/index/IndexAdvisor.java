@@ -0,0 +1,230 @@
+package study.querydsl.index;
+
+import static study.querydsl.dto.MemberSearchCondition.*;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.MemberCursorSort;
+import study.querydsl.metrics.MemberSearchMetrics;
+import study.querydsl.repository.MemberSearchQueries;
+
+/**
+ * 기록된 검색 workload를 H2 EXPLAIN으로 확인하고, member 테이블을 전체 스캔하는 조합에 인덱스를 제안한다.
+ * EXPLAIN 대상 SQL은 검색 리포지토리가 쓰는 MemberSearchQueries의 shape와 정렬별 쿼리를 Hibernate로 번역해 얻으므로,
+ * 리포지토리의 조건이 바뀌면 제안도 함께 바뀐다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexAdvisor {
+	/**
+	 * H2 실행 계획에서 member 테이블 다음에 붙는 접근 방식 주석. 예) PUBLIC.IDX_MEMBER_TEAM_AGE, PUBLIC.MEMBER.tableScan
+	 */
+	private static final Pattern MEMBER_ACCESS = Pattern.compile("\"?MEMBER\"?\\s+\"?\\w+\"?\\s*/\\*\\s*([^\\s:*]+)");
+	private static final Pattern POSITIONAL_PARAMETER = Pattern.compile("\\?(\\d+)");
+	private static final String TABLE_SCAN = ".tableScan";
+
+	private final SearchWorkload workload;
+	private final JdbcTemplate jdbcTemplate;
+	private final MemberSearchQueries searchQueries;
+	private final EntityManager em;
+
+	public List<IndexAdvice> advise() {
+		Collection<List<String>> existingIndexes = memberIndexes().values();
+		List<IndexAdvice> advices = new ArrayList<>();
+		for (SearchWorkload.Entry entry : workload.snapshot()) {
+			advices.add(advise(entry.getShape(), entry.getSort(), entry.getExecutions(), existingIndexes));
+		}
+		return advices;
+	}
+
+	public IndexAdvice advise(int shape, MemberCursorSort sort) {
+		return advise(shape, sort, 0, memberIndexes().values());
+	}
+
+	/**
+	 * 제안된 인덱스를 만든다. 같은 컬럼 구성의 제안은 한 번만 적용한다.
+	 * @return 실행한 DDL
+	 */
+	public List<String> apply() {
+		List<String> applied = new ArrayList<>();
+		for (IndexAdvice advice : advise()) {
+			if (advice.getDdl() != null && !applied.contains(advice.getDdl())) {
+				log.info("applying index advice for shape {}: {}", advice.getShape(), advice.getDdl());
+				jdbcTemplate.execute(advice.getDdl());
+				applied.add(advice.getDdl());
+			}
+		}
+		return applied;
+	}
+
+	private IndexAdvice advise(int shape, MemberCursorSort sort, long executions,
+		Collection<List<String>> existingIndexes) {
+		ExplainTarget target = explainTarget(shape, sort);
+		String sql = target.sql;
+		String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, target.parameters);
+		String usedIndex = usedIndex(plan);
+
+		List<String> proposedColumns = Collections.emptyList();
+		if (usedIndex == null) {
+			List<String> columns = proposedColumns(shape, sort);
+			if (!columns.isEmpty() && !hasLeadingColumns(existingIndexes, columns)) {
+				proposedColumns = columns;
+			}
+		}
+		String ddl = proposedColumns.isEmpty() ? null : createIndexDdl(proposedColumns);
+		return new IndexAdvice(MemberSearchMetrics.shapeTag(shape), sort, executions, sql, plan, usedIndex,
+			proposedColumns, ddl);
+	}
+
+	/**
+	 * 등치 조건 컬럼을 앞에, 범위 조건이나 정렬 컬럼을 뒤에 둔다.
+	 * username은 그 자체로 선택도가 높으므로 단일 컬럼 인덱스로 충분하고, id 정렬은 기본키로 처리된다.
+	 */
+	static List<String> proposedColumns(int shape, MemberCursorSort sort) {
+		boolean ageAccess = (shape & (AGE_GOE | AGE_LOE)) != 0 || sort == MemberCursorSort.AGE;
+		List<String> columns = new ArrayList<>();
+		if ((shape & (USERNAME | USERNAME_STARTS_WITH)) != 0) {
+			columns.add("username");
+		} else if ((shape & TEAM_NAME) != 0) {
+			columns.add("team_id");
+			if (ageAccess) {
+				columns.add("age");
+			}
+		} else if (ageAccess) {
+			columns.add("age");
+		}
+		return columns;
+	}
+
+	private static String createIndexDdl(List<String> columns) {
+		return String.format("create index if not exists idx_member_%s on member (%s)",
+			String.join("_", columns), String.join(", ", columns));
+	}
+
+	/**
+	 * 리포지토리가 만드는 검색 쿼리를 Hibernate가 번역한 SQL. 값은 리포지토리의 자리표시 값을 그대로 바인딩한다.
+	 * 목록 파라미터는 Hibernate가 실행할 때 원소 수만큼 ?로 펼치므로, JPQL을 만들 때 미리 원소별 파라미터로 펼친다.
+	 */
+	private ExplainTarget explainTarget(int shape, MemberCursorSort sort) {
+		ExpandingSerializer serializer = new ExpandingSerializer(JPAProvider.getTemplates(em), em);
+		serializer.serialize(searchQueries.shapeMetadata(shape, sort), false, null);
+		String jpql = serializer.toString();
+
+		// SQL의 ?는 JPQL에 ?n이 나온 순서를 따른다
+		List<Object> constants = serializer.getConstants();
+		List<Object> parameters = new ArrayList<>();
+		Matcher matcher = POSITIONAL_PARAMETER.matcher(jpql);
+		while (matcher.find()) {
+			parameters.add(constants.get(Integer.parseInt(matcher.group(1)) - 1));
+		}
+		SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory()
+			.unwrap(SessionFactoryImplementor.class);
+		String[] sql = sessionFactory.getQueryPlanCache()
+			.getHQLQueryPlan(jpql, false, Collections.emptyMap())
+			.getSqlStrings();
+		if (sql.length != 1) {
+			throw new IllegalStateException("search query of shape " + shape + " is translated to " + sql.length
+				+ " statements");
+		}
+		return new ExplainTarget(sql[0], parameters.toArray());
+	}
+
+	static String usedIndex(String plan) {
+		Matcher matcher = MEMBER_ACCESS.matcher(plan);
+		if (!matcher.find() || matcher.group(1).endsWith(TABLE_SCAN)) {
+			return null;
+		}
+		return matcher.group(1);
+	}
+
+	private static boolean hasLeadingColumns(Collection<List<String>> indexes, List<String> columns) {
+		for (List<String> index : indexes) {
+			if (index.size() >= columns.size() && index.subList(0, columns.size()).equals(columns)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * member 테이블의 인덱스 이름별 컬럼 목록(소문자, 인덱스 내 순서대로)
+	 */
+	private Map<String, List<String>> memberIndexes() {
+		return jdbcTemplate.execute((ConnectionCallback<Map<String, List<String>>>)con -> {
+			Map<String, List<String>> indexes = new LinkedHashMap<>();
+			DatabaseMetaData metaData = con.getMetaData();
+			try (ResultSet rs = metaData.getIndexInfo(con.getCatalog(), null, "MEMBER", false, true)) {
+				while (rs.next()) {
+					String indexName = rs.getString("INDEX_NAME");
+					String column = rs.getString("COLUMN_NAME");
+					if (indexName != null && column != null) {
+						indexes.computeIfAbsent(indexName, name -> new ArrayList<>())
+							.add(column.toLowerCase(Locale.ROOT));
+					}
+				}
+			}
+			return indexes;
+		});
+	}
+
+	private static class ExplainTarget {
+		final String sql;
+		final Object[] parameters;
+
+		ExplainTarget(String sql, Object[] parameters) {
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+	}
+
+	/**
+	 * 목록 상수를 (?1) 하나가 아니라 (?1, ?2, ...)처럼 원소마다 파라미터로 쓴다
+	 */
+	private static class ExpandingSerializer extends JPQLSerializer {
+		ExpandingSerializer(JPQLTemplates templates, EntityManager em) {
+			super(templates, em);
+		}
+
+		@Override
+		public void visitConstant(Object constant) {
+			if (!(constant instanceof Collection)) {
+				super.visitConstant(constant);
+				return;
+			}
+			append("(");
+			boolean first = true;
+			for (Object element : (Collection<?>)constant) {
+				if (!first) {
+					append(", ");
+				}
+				super.visitConstant(element);
+				first = false;
+			}
+			append(")");
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package study.querydsl.index;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * GET /actuator/indexadvisor 로 제안을 확인하고, member.index-advisor.apply-enabled=true 일 때만 POST로 적용한다.
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+public class IndexAdvisorEndpoint {
+	private final IndexAdvisor indexAdvisor;
+	private final boolean applyEnabled;
+
+	public IndexAdvisorEndpoint(IndexAdvisor indexAdvisor,
+		@Value("${member.index-advisor.apply-enabled:false}") boolean applyEnabled) {
+		this.indexAdvisor = indexAdvisor;
+		this.applyEnabled = applyEnabled;
+	}
+
+	@ReadOperation
+	public List<IndexAdvice> advise() {
+		return indexAdvisor.advise();
+	}
+
+	@WriteOperation
+	public List<String> apply() {
+		if (!applyEnabled) {
+			throw new IllegalStateException("member.index-advisor.apply-enabled is false");
+		}
+		return indexAdvisor.apply();
+	}
+}
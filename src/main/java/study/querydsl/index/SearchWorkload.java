@@ -0,0 +1,50 @@
+package study.querydsl.index;
+
+import static study.querydsl.dto.MemberSearchCondition.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.MemberCursorSort;
+
+/**
+ * 검색 리포지토리로 들어온 조건 shape와 정렬 조합별 실행 횟수. {@link IndexAdvisor}의 입력이 된다.
+ */
+@Component
+public class SearchWorkload {
+	private static final MemberCursorSort[] SORTS = MemberCursorSort.values();
+
+	/**
+	 * [shape * (정렬 수 + 1) + 정렬 순번]. 정렬 순번 0은 정렬 없음
+	 */
+	private final AtomicLongArray executions = new AtomicLongArray(SHAPE_COUNT * (SORTS.length + 1));
+
+	public void record(int shape, MemberCursorSort sort) {
+		executions.incrementAndGet(shape * (SORTS.length + 1) + (sort == null ? 0 : sort.ordinal() + 1));
+	}
+
+	public List<Entry> snapshot() {
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < executions.length(); i++) {
+			long count = executions.get(i);
+			if (count > 0) {
+				int sort = i % (SORTS.length + 1);
+				entries.add(new Entry(i / (SORTS.length + 1), sort == 0 ? null : SORTS[sort - 1], count));
+			}
+		}
+		return entries;
+	}
+
+	@Getter
+	@RequiredArgsConstructor
+	public static class Entry {
+		private final int shape;
+		private final MemberCursorSort sort;
+		private final long executions;
+	}
+}
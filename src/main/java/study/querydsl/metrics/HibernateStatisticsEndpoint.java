@@ -0,0 +1,63 @@
+package study.querydsl.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate {@link Statistics}를 /actuator/hibernatestats로 노출한다.
+ * hibernate.generate_statistics가 꺼져 있으면(기본값, member.hibernate.statistics=true로 켠다) 모든 값이 0이다.
+ * 웹에 노출되므로 읽기 연산만 둔다. 통계를 초기화하는 연산은 인증 없이 누구나 호출할 수 있게 된다.
+ */
+@Component
+@Endpoint(id = "hibernatestats")
+public class HibernateStatisticsEndpoint {
+	private final Statistics statistics;
+
+	public HibernateStatisticsEndpoint(EntityManagerFactory emf) {
+		this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@ReadOperation
+	public Map<String, Object> statistics() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("enabled", statistics.isStatisticsEnabled());
+		result.put("queryExecutionCount", statistics.getQueryExecutionCount());
+		result.put("queryExecutionMaxTime", statistics.getQueryExecutionMaxTime());
+		result.put("queryExecutionMaxTimeQueryString", statistics.getQueryExecutionMaxTimeQueryString());
+		result.put("prepareStatementCount", statistics.getPrepareStatementCount());
+		result.put("entityLoadCount", statistics.getEntityLoadCount());
+		result.put("entityFetchCount", statistics.getEntityFetchCount());
+		result.put("secondLevelCacheHitCount", statistics.getSecondLevelCacheHitCount());
+		result.put("secondLevelCacheMissCount", statistics.getSecondLevelCacheMissCount());
+		result.put("secondLevelCachePutCount", statistics.getSecondLevelCachePutCount());
+		result.put("queryCacheHitCount", statistics.getQueryCacheHitCount());
+		result.put("queryCacheMissCount", statistics.getQueryCacheMissCount());
+		result.put("regions", regions());
+		return result;
+	}
+
+	private Map<String, Object> regions() {
+		Map<String, Object> regions = new LinkedHashMap<>();
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+			if (region == null) {
+				continue;
+			}
+			Map<String, Object> values = new LinkedHashMap<>();
+			values.put("hitCount", region.getHitCount());
+			values.put("missCount", region.getMissCount());
+			values.put("putCount", region.getPutCount());
+			regions.put(regionName, values);
+		}
+		return regions;
+	}
+}
@@ -0,0 +1,41 @@
+package study.querydsl.metrics;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.repository.MemberCountCache;
+import study.querydsl.repository.MemberSearchCoalescer;
+
+/**
+ * 검색 경로의 애플리케이션 캐시 적중률. 값은 수집 시점에만 읽으므로 검색 경로에는 비용이 없다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberCacheMetrics implements MeterBinder {
+	private final MemberCountCache countCache;
+	private final MemberSearchCoalescer searchCoalescer;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("member.cache.requests", countCache, cache -> cache.stats().hitCount())
+			.tags("cache", "count", "result", "hit")
+			.register(registry);
+		FunctionCounter.builder("member.cache.requests", countCache, cache -> cache.stats().missCount())
+			.tags("cache", "count", "result", "miss")
+			.register(registry);
+		FunctionCounter.builder("member.cache.evictions", countCache, cache -> cache.stats().evictionCount())
+			.tags("cache", "count")
+			.register(registry);
+
+		// shared는 같은 검색의 실행 결과를 받아 content/count 쿼리를 실행하지 않은 요청 수
+		FunctionCounter.builder("member.search.coalescing", searchCoalescer, MemberSearchCoalescer::getExecutions)
+			.tags("result", "executed")
+			.register(registry);
+		FunctionCounter.builder("member.search.coalescing", searchCoalescer, MemberSearchCoalescer::getShared)
+			.tags("result", "shared")
+			.register(registry);
+	}
+}
@@ -0,0 +1,156 @@
+package study.querydsl.metrics;
+
+import static study.querydsl.dto.MemberSearchCondition.*;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 검색 경로의 지연 시간, 반환 건수, count 쿼리 실행을 메서드와 조건 shape별로 기록한다.
+ * 메서드별 {@link Operation}을 필드로 잡아두면 미터는 shape별로 한 번만 등록되고,
+ * 이후 호출은 배열 조회와 기록만 하므로 부하 상황에서도 켜둘 수 있다.
+ */
+@Component
+public class MemberSearchMetrics {
+	private static final String[] SHAPE_TAGS = shapeTags();
+
+	private final MeterRegistry registry;
+
+	public MemberSearchMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	public Operation repository(String repository, String method) {
+		return new Operation(registry, "member.repository", Tags.of("repository", repository, "method", method));
+	}
+
+	public Operation controller(String endpoint) {
+		return new Operation(registry, "member.controller", Tags.of("endpoint", endpoint));
+	}
+
+	/**
+	 * shape를 사람이 읽을 수 있는 태그 값으로 바꾼다. 예) username+ageGoe, 조건이 없으면 none
+	 */
+	public static String shapeTag(int shape) {
+		return SHAPE_TAGS[shape];
+	}
+
+	private static String[] shapeTags() {
+		String[] tags = new String[SHAPE_COUNT];
+		for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+			StringJoiner joiner = new StringJoiner("+");
+			joiner.setEmptyValue("none");
+			if ((shape & USERNAME) != 0) {
+				joiner.add("username");
+			}
+			if ((shape & USERNAME_STARTS_WITH) != 0) {
+				joiner.add("usernameStartsWith");
+			}
+			if ((shape & USERNAME_CONTAINS) != 0) {
+				joiner.add("usernameContains");
+			}
+			if ((shape & TEAM_NAME) != 0) {
+				joiner.add("teamName");
+			}
+			if ((shape & AGE_GOE) != 0) {
+				joiner.add("ageGoe");
+			}
+			if ((shape & AGE_LOE) != 0) {
+				joiner.add("ageLoe");
+			}
+			tags[shape] = joiner.toString();
+		}
+		return tags;
+	}
+
+	public static class Operation {
+		private final MeterRegistry registry;
+		private final Clock clock;
+		private final String prefix;
+		private final Tags tags;
+		private final AtomicReferenceArray<Timer> latency = new AtomicReferenceArray<>(SHAPE_COUNT);
+		private final AtomicReferenceArray<DistributionSummary> rows = new AtomicReferenceArray<>(SHAPE_COUNT);
+		private final AtomicReferenceArray<Timer> countQueries = new AtomicReferenceArray<>(SHAPE_COUNT);
+
+		private Operation(MeterRegistry registry, String prefix, Tags tags) {
+			this.registry = registry;
+			this.clock = registry.config().clock();
+			this.prefix = prefix;
+			this.tags = tags;
+		}
+
+		public long start() {
+			return clock.monotonicTime();
+		}
+
+		/**
+		 * {@link #start()} 이후 걸린 시간과 반환 건수를 기록한다.
+		 */
+		public void record(int shape, long start, long rowCount) {
+			latency(shape).record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+			rows(shape).record(rowCount);
+		}
+
+		/**
+		 * count 쿼리를 실행하며 실행 횟수와 시간을 기록한다. 캐시 적중으로 실행되지 않은 count는 기록되지 않는다.
+		 */
+		public long countQuery(int shape, LongSupplier countQuery) {
+			long start = clock.monotonicTime();
+			try {
+				return countQuery.getAsLong();
+			} finally {
+				countQuery(shape).record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		private Timer latency(int shape) {
+			Timer timer = latency.get(shape);
+			if (timer == null) {
+				timer = Timer.builder(prefix + ".latency")
+					.description("검색 실행 시간")
+					.tags(tags)
+					.tag("shape", shapeTag(shape))
+					.register(registry);
+				latency.set(shape, timer);
+			}
+			return timer;
+		}
+
+		private DistributionSummary rows(int shape) {
+			DistributionSummary summary = rows.get(shape);
+			if (summary == null) {
+				summary = DistributionSummary.builder(prefix + ".rows")
+					.description("검색 결과 건수")
+					.baseUnit("rows")
+					.tags(tags)
+					.tag("shape", shapeTag(shape))
+					.register(registry);
+				rows.set(shape, summary);
+			}
+			return summary;
+		}
+
+		private Timer countQuery(int shape) {
+			Timer timer = countQueries.get(shape);
+			if (timer == null) {
+				timer = Timer.builder(prefix + ".count")
+					.description("DB에서 실행된 count 쿼리")
+					.tags(tags)
+					.tag("shape", shapeTag(shape))
+					.register(registry);
+				countQueries.set(shape, timer);
+			}
+			return timer;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package study.querydsl.projection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+class AccessorBean<T> extends FactoryExpressionBase<T> {
+	private final List<Expression<?>> args;
+	private final Accessors.BeanAccessor accessor;
+
+	AccessorBean(Class<? extends T> type, AccessorMode mode, Map<String, Expression<?>> bindings) {
+		super(type);
+		this.args = Collections.unmodifiableList(new ArrayList<>(bindings.values()));
+		this.accessor = Accessors.bean(type, mode, new ArrayList<>(bindings.keySet()));
+	}
+
+	@Override
+	public List<Expression<?>> getArgs() {
+		return args;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T newInstance(Object... values) {
+		return (T)accessor.newInstance(values);
+	}
+
+	@Override
+	public <R, C> R accept(Visitor<R, C> v, C context) {
+		return v.visit(this, context);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof AccessorBean)) {
+			return false;
+		}
+		AccessorBean<?> other = (AccessorBean<?>)o;
+		return getType().equals(other.getType()) && args.equals(other.args) && accessor == other.accessor;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getType(), args, accessor);
+	}
+}
@@ -0,0 +1,57 @@
+package study.querydsl.projection;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+class AccessorConstructor<T> extends FactoryExpressionBase<T> {
+	private final List<Expression<?>> args;
+	private final Accessors.ConstructorAccessor accessor;
+
+	AccessorConstructor(Class<? extends T> type, List<Expression<?>> args) {
+		super(type);
+		this.args = Collections.unmodifiableList(args);
+		Class<?>[] argTypes = new Class<?>[args.size()];
+		for (int i = 0; i < argTypes.length; i++) {
+			argTypes[i] = args.get(i).getType();
+		}
+		this.accessor = Accessors.constructor(type, argTypes);
+	}
+
+	@Override
+	public List<Expression<?>> getArgs() {
+		return args;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T newInstance(Object... values) {
+		return (T)accessor.newInstance(values);
+	}
+
+	@Override
+	public <R, C> R accept(Visitor<R, C> v, C context) {
+		return v.visit(this, context);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof AccessorConstructor)) {
+			return false;
+		}
+		AccessorConstructor<?> other = (AccessorConstructor<?>)o;
+		return getType().equals(other.getType()) && args.equals(other.args);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getType(), args);
+	}
+}
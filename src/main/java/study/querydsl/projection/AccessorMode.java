@@ -0,0 +1,6 @@
+package study.querydsl.projection;
+
+enum AccessorMode {
+	SETTER,
+	FIELD
+}
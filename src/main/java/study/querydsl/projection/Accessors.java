@@ -0,0 +1,237 @@
+package study.querydsl.projection;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DTO 클래스별 생성/주입 접근자를 만들고 캐시한다. 리플렉션은 접근자를 만들 때 한 번만 사용한다.
+ * LambdaMetafactory로 람다를 만들 수 없는 생성자나 setter는 MethodHandle 호출로 대신하고, 접근자를 만들 때 debug로 남긴다.
+ */
+@Slf4j
+final class Accessors {
+	private static final Map<List<Object>, BeanAccessor> BEANS = new ConcurrentHashMap<>();
+	private static final Map<List<Object>, ConstructorAccessor> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+	private Accessors() {
+	}
+
+	static BeanAccessor bean(Class<?> type, AccessorMode mode, List<String> properties) {
+		return BEANS.computeIfAbsent(List.of(type, mode, List.copyOf(properties)),
+			key -> createBean(type, mode, properties));
+	}
+
+	static ConstructorAccessor constructor(Class<?> type, Class<?>[] argTypes) {
+		return CONSTRUCTORS.computeIfAbsent(List.of(type, List.of(argTypes)),
+			key -> createConstructor(type, argTypes));
+	}
+
+	static final class BeanAccessor {
+		private final Supplier<Object> instantiator;
+		private final BiConsumer<Object, Object>[] setters;
+
+		private BeanAccessor(Supplier<Object> instantiator, BiConsumer<Object, Object>[] setters) {
+			this.instantiator = instantiator;
+			this.setters = setters;
+		}
+
+		Object newInstance(Object[] values) {
+			Object bean = instantiator.get();
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != null) {
+					setters[i].accept(bean, values[i]);
+				}
+			}
+			return bean;
+		}
+	}
+
+	static final class ConstructorAccessor {
+		private final MethodHandle constructor;
+		private final Object[] primitiveDefaults;
+
+		private ConstructorAccessor(MethodHandle constructor, Object[] primitiveDefaults) {
+			this.constructor = constructor;
+			this.primitiveDefaults = primitiveDefaults;
+		}
+
+		/**
+		 * values는 바꾸지 않는다. 기본형 인자에 null이 있으면 복사본에 기본값을 채운다.
+		 */
+		Object newInstance(Object[] values) {
+			Object[] arguments = values;
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] == null && primitiveDefaults[i] != null) {
+					if (arguments == values) {
+						arguments = values.clone();
+					}
+					arguments[i] = primitiveDefaults[i];
+				}
+			}
+			try {
+				return (Object)constructor.invokeExact(arguments);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BeanAccessor createBean(Class<?> type, AccessorMode mode, List<String> properties) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			BiConsumer<Object, Object>[] setters = new BiConsumer[properties.size()];
+			for (int i = 0; i < setters.length; i++) {
+				String property = properties.get(i);
+				setters[i] = mode == AccessorMode.SETTER
+					? methodSetter(lookup, findSetter(type, property))
+					: fieldSetter(lookup, findField(type, property));
+			}
+			return new BeanAccessor(instantiator(lookup, type), setters);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create accessors for " + type.getName(), e);
+		}
+	}
+
+	private static ConstructorAccessor createConstructor(Class<?> type, Class<?>[] argTypes) {
+		Constructor<?> constructor = Arrays.stream(type.getDeclaredConstructors())
+			.filter(candidate -> matches(candidate.getParameterTypes(), argTypes))
+			.findFirst()
+			.orElseThrow(() -> new IllegalArgumentException(
+				"No constructor of " + type.getName() + " accepts " + Arrays.toString(argTypes)));
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			Class<?>[] parameterTypes = constructor.getParameterTypes();
+			MethodHandle handle = lookup.unreflectConstructor(constructor)
+				.asSpreader(Object[].class, parameterTypes.length)
+				.asType(MethodType.methodType(Object.class, Object[].class));
+
+			Object[] primitiveDefaults = new Object[parameterTypes.length];
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (parameterTypes[i].isPrimitive()) {
+					primitiveDefaults[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+				}
+			}
+			return new ConstructorAccessor(handle, primitiveDefaults);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot access constructor of " + type.getName(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Supplier<Object> instantiator(MethodHandles.Lookup lookup, Class<?> type) throws
+		ReflectiveOperationException {
+		MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+		try {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+				MethodType.methodType(Supplier.class),
+				MethodType.methodType(Object.class),
+				constructor,
+				MethodType.methodType(type));
+			return (Supplier<Object>)site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.debug("falling back to method handle for the default constructor of {}", type.getName(), e);
+			MethodHandle generic = constructor.asType(MethodType.methodType(Object.class));
+			return () -> invoke(generic);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<Object, Object> methodSetter(MethodHandles.Lookup lookup, Method method)
+		throws IllegalAccessException {
+		MethodHandle target = lookup.unreflect(method);
+		Class<?> valueType = ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[0]);
+		try {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+				MethodType.methodType(BiConsumer.class),
+				MethodType.methodType(void.class, Object.class, Object.class),
+				target,
+				MethodType.methodType(void.class, method.getDeclaringClass(), valueType));
+			return (BiConsumer<Object, Object>)site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.debug("falling back to method handle for setter {}", method, e);
+			return handleSetter(target);
+		}
+	}
+
+	private static BiConsumer<Object, Object> fieldSetter(MethodHandles.Lookup lookup, Field field)
+		throws IllegalAccessException {
+		// LambdaMetafactory는 필드 핸들을 받지 않으므로 MethodHandle을 그대로 호출한다
+		return handleSetter(lookup.unreflectSetter(field));
+	}
+
+	private static BiConsumer<Object, Object> handleSetter(MethodHandle target) {
+		MethodHandle generic = target.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		return (bean, value) -> {
+			try {
+				generic.invokeExact(bean, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+
+	private static Object invoke(MethodHandle constructor) {
+		try {
+			return (Object)constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Method findSetter(Class<?> type, String property) throws NoSuchMethodException {
+		String name = "set" + StringUtils.capitalize(property);
+		for (Method method : type.getMethods()) {
+			if (method.getName().equals(name) && method.getParameterCount() == 1
+				&& !Modifier.isStatic(method.getModifiers())) {
+				return method;
+			}
+		}
+		throw new NoSuchMethodException(type.getName() + "." + name);
+	}
+
+	private static Field findField(Class<?> type, String property) throws NoSuchFieldException {
+		Field field = ReflectionUtils.findField(type, property);
+		if (field == null || Modifier.isStatic(field.getModifiers())) {
+			throw new NoSuchFieldException(type.getName() + "." + property);
+		}
+		return field;
+	}
+
+	private static boolean matches(Class<?>[] parameterTypes, Class<?>[] argTypes) {
+		if (parameterTypes.length != argTypes.length) {
+			return false;
+		}
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (!ClassUtils.isAssignable(parameterTypes[i], argTypes[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
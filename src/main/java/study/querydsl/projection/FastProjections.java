@@ -0,0 +1,62 @@
+package study.querydsl.projection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+
+/**
+ * {@link com.querydsl.core.types.Projections}와 같은 사용법이지만, DTO 생성과 값 주입을
+ * 리플렉션 대신 DTO 클래스/별칭 조합마다 한 번 만들어 캐시한 MethodHandle, LambdaMetafactory 접근자로 처리한다.
+ */
+public final class FastProjections {
+
+	private FastProjections() {
+	}
+
+	/**
+	 * 기본 생성자 + setter로 채운다. {@code Projections.bean}과 같다.
+	 */
+	public static <T> FactoryExpression<T> bean(Class<? extends T> type, Expression<?>... exprs) {
+		return new AccessorBean<>(type, AccessorMode.SETTER, bindings(exprs));
+	}
+
+	/**
+	 * 기본 생성자 + 필드 직접 주입으로 채운다. {@code Projections.fields}와 같다.
+	 */
+	public static <T> FactoryExpression<T> fields(Class<? extends T> type, Expression<?>... exprs) {
+		return new AccessorBean<>(type, AccessorMode.FIELD, bindings(exprs));
+	}
+
+	/**
+	 * 인자 타입이 맞는 생성자를 호출한다. {@code Projections.constructor}와 같다.
+	 */
+	public static <T> FactoryExpression<T> constructor(Class<? extends T> type, Expression<?>... exprs) {
+		List<Expression<?>> args = new ArrayList<>(exprs.length);
+		Collections.addAll(args, exprs);
+		return new AccessorConstructor<>(type, args);
+	}
+
+	private static Map<String, Expression<?>> bindings(Expression<?>... exprs) {
+		Map<String, Expression<?>> bindings = new LinkedHashMap<>(exprs.length);
+		for (Expression<?> expr : exprs) {
+			if (expr instanceof Path<?>) {
+				bindings.put(((Path<?>) expr).getMetadata().getName(), expr);
+			} else if (expr instanceof Operation<?> && ((Operation<?>) expr).getOperator() == Ops.ALIAS) {
+				Operation<?> alias = (Operation<?>) expr;
+				String name = ((Path<?>) alias.getArg(1)).getMetadata().getName();
+				bindings.put(name, alias.getArg(0) instanceof FactoryExpression ? alias.getArg(0) : alias);
+			} else {
+				throw new IllegalArgumentException("Unsupported expression " + expr);
+			}
+		}
+		return bindings;
+	}
+}
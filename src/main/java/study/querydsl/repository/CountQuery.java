@@ -0,0 +1,183 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+/**
+ * 검색 조건으로부터 가장 싼 count 쿼리를 만든다.
+ * to-one left join은 행 수를 바꾸지 않으므로, 조건이 join한 별칭을 참조하지 않으면 join을 뺀다.
+ * member.team.id 처럼 외래 키로 끝나는 경로는 member 루트의 경로라 team join이 필요 없다.
+ * count는 엔티티가 아니라 id로 센다. 내용 크기로 total을 알 수 있으면 PageableExecutionUtils가 count를 건너뛴다.
+ * deprecated된 fetchCount/fetchResults 대신 쓴다.
+ */
+final class CountQuery {
+	private final JPAQueryFactory queryFactory;
+	private final EntityPath<?> from;
+	private final SimpleExpression<?> id;
+	private final List<LeftJoin> leftJoins = new ArrayList<>();
+	private final List<Predicate> where = new ArrayList<>();
+
+	private CountQuery(JPAQueryFactory queryFactory, EntityPath<?> from, SimpleExpression<?> id) {
+		this.queryFactory = queryFactory;
+		this.from = from;
+		this.id = id;
+	}
+
+	static CountQuery from(JPAQueryFactory queryFactory, EntityPath<?> from, SimpleExpression<?> id) {
+		return new CountQuery(queryFactory, from, id);
+	}
+
+	/**
+	 * to-one 연관만 등록해야 한다. to-many나 inner join은 행 수를 바꾸므로 뺄 수 없다.
+	 */
+	<P> CountQuery leftJoin(EntityPath<P> target, Path<P> alias) {
+		leftJoins.add(new LeftJoin(target, alias));
+		return this;
+	}
+
+	/**
+	 * null인 조건은 무시한다
+	 */
+	CountQuery where(Predicate... predicates) {
+		for (Predicate predicate : predicates) {
+			if (predicate != null) {
+				where.add(predicate);
+			}
+		}
+		return this;
+	}
+
+	JPAQuery<Long> toQuery() {
+		Set<Path<?>> referenced = new HashSet<>();
+		for (Predicate predicate : where) {
+			predicate.accept(RootCollector.INSTANCE, referenced);
+		}
+		// 뒤의 join이 앞의 별칭을 경로로 쓸 수 있으므로 뒤에서부터 필요한 join을 고른다
+		List<LeftJoin> needed = new ArrayList<>();
+		for (int i = leftJoins.size() - 1; i >= 0; i--) {
+			LeftJoin join = leftJoins.get(i);
+			if (referenced.contains(join.alias)) {
+				needed.add(join);
+				referenced.add(join.target.getRoot());
+			}
+		}
+		Collections.reverse(needed);
+
+		JPAQuery<Long> query = queryFactory.select(id.count()).from(from);
+		for (LeftJoin join : needed) {
+			join.apply(query);
+		}
+		return query.where(where.toArray(new Predicate[0]));
+	}
+
+	long fetch() {
+		Long count = toQuery().fetchOne();
+		return count != null ? count : 0;
+	}
+
+	private static class LeftJoin {
+		final EntityPath<?> target;
+		final Path<?> alias;
+
+		LeftJoin(EntityPath<?> target, Path<?> alias) {
+			this.target = target;
+			this.alias = alias;
+		}
+
+		@SuppressWarnings("unchecked")
+		void apply(JPAQuery<?> query) {
+			query.leftJoin((EntityPath<Object>)target, (Path<Object>)alias);
+		}
+	}
+
+	/**
+	 * 식이 참조하는 모든 경로의 루트(별칭)를 모은다. 서브쿼리 안에서 바깥 별칭을 참조하는 경우도 포함한다.
+	 */
+	private static final class RootCollector implements Visitor<Void, Set<Path<?>>> {
+		static final RootCollector INSTANCE = new RootCollector();
+
+		@Override
+		public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+			return null;
+		}
+
+		@Override
+		public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+			visitAll(expr.getArgs(), roots);
+			return null;
+		}
+
+		@Override
+		public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+			visitAll(expr.getArgs(), roots);
+			return null;
+		}
+
+		@Override
+		public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+			return null;
+		}
+
+		@Override
+		public Void visit(Path<?> expr, Set<Path<?>> roots) {
+			roots.add(expr.getRoot());
+			return null;
+		}
+
+		@Override
+		public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+			QueryMetadata metadata = expr.getMetadata();
+			visitNullable(metadata.getProjection(), roots);
+			visitNullable(metadata.getWhere(), roots);
+			visitNullable(metadata.getHaving(), roots);
+			visitAll(metadata.getGroupBy(), roots);
+			for (JoinExpression join : metadata.getJoins()) {
+				visitNullable(join.getTarget(), roots);
+				visitNullable(join.getCondition(), roots);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+			for (Object arg : expr.getArgs()) {
+				if (arg instanceof Expression) {
+					((Expression<?>)arg).accept(this, roots);
+				}
+			}
+			return null;
+		}
+
+		private void visitAll(List<? extends Expression<?>> expressions, Set<Path<?>> roots) {
+			for (Expression<?> expression : expressions) {
+				expression.accept(this, roots);
+			}
+		}
+
+		private void visitNullable(Expression<?> expression, Set<Path<?>> roots) {
+			if (expression != null) {
+				expression.accept(this, roots);
+			}
+		}
+	}
+}
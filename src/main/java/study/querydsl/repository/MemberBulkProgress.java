@@ -0,0 +1,36 @@
+package study.querydsl.repository;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * 청크 단위 벌크 연산의 진행 상황. 청크가 커밋될 때마다 새 값이 만들어진다.
+ */
+@Data
+public class MemberBulkProgress {
+	private final String operation;
+	private final int chunks;
+	/**
+	 * 지금까지 커밋된 청크에서 변경/삭제된 행 수
+	 */
+	private final long rows;
+	private final Duration elapsed;
+	/**
+	 * 조건에 맞는 행을 모두 처리했으면 true. 중간에 인터럽트되면 이미 커밋된 청크까지만 반영되고 false로 끝난다.
+	 */
+	private final boolean completed;
+
+	public double getRowsPerSecond() {
+		long millis = Math.max(elapsed.toMillis(), 1);
+		return rows * 1000.0 / millis;
+	}
+
+	MemberBulkProgress next(long chunkRows, long elapsedNanos) {
+		return new MemberBulkProgress(operation, chunks + 1, rows + chunkRows, Duration.ofNanos(elapsedNanos), false);
+	}
+
+	MemberBulkProgress complete(long elapsedNanos) {
+		return new MemberBulkProgress(operation, chunks, rows, Duration.ofNanos(elapsedNanos), true);
+	}
+}
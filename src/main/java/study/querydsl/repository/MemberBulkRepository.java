@@ -0,0 +1,245 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.*;
+import static study.querydsl.entity.QMember.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.metrics.MemberSearchMetrics;
+import study.querydsl.search.MemberColumnarIndex;
+import study.querydsl.search.MemberIndexChanges;
+import study.querydsl.search.MemberRow;
+
+/**
+ * MemberSearchCondition에 맞는 회원을 id 순서의 청크로 나눠 변경/삭제한다.
+ * 청크마다 대상 id를 select ... for update로 잠그고 그 행만 변경한 뒤 바로 커밋하므로,
+ * 한 번의 update/delete처럼 조건에 맞는 행 전체를 트랜잭션 끝까지 잠그지 않는다.
+ * 청크는 각자 새 트랜잭션(영속성 컨텍스트)에서 실행되어 호출한 쪽에 낡은 엔티티가 남지 않는다.
+ * JPQL 벌크 연산은 이벤트를 발생시키지 않으므로 count 캐시, 데이터 버전, member_team 읽기 모델,
+ * username 트라이그램 색인, team_stats 롤업, 인메모리 인덱스는 청크마다 직접 맞춘다.
+ */
+@Slf4j
+@Repository
+public class MemberBulkRepository {
+	private final JPAQueryFactory queryFactory;
+	private final MemberSearchQueries searchQueries;
+	private final TransactionTemplate transactionTemplate;
+	private final TeamRepository teamRepository;
+	private final MemberCountCache countCache;
+	private final MemberDataVersion dataVersion;
+	private final MemberTeamViewRepository readModel;
+	private final MemberUsernameGramRepository usernameGrams;
+	private final TeamStatsRepository teamStats;
+	private final MemberColumnarIndex columnarIndex;
+	private final MemberSearchMetrics.Operation addAgeMetrics;
+	private final MemberSearchMetrics.Operation changeUsernameMetrics;
+	private final MemberSearchMetrics.Operation deleteMetrics;
+	private final int chunkSize;
+	private final Duration pause;
+
+	public MemberBulkRepository(EntityManager em, MemberSearchQueries searchQueries,
+		PlatformTransactionManager transactionManager,
+		TeamRepository teamRepository, MemberCountCache countCache, MemberDataVersion dataVersion,
+		MemberTeamViewRepository readModel, MemberUsernameGramRepository usernameGrams, TeamStatsRepository teamStats,
+		MemberColumnarIndex columnarIndex, MemberSearchMetrics metrics,
+		@Value("${member.bulk.chunk-size:1000}") int chunkSize,
+		@Value("${member.bulk.pause:10ms}") Duration pause) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("member.bulk.chunk-size must be positive");
+		}
+		this.queryFactory = new JPAQueryFactory(em);
+		this.searchQueries = searchQueries;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.teamRepository = teamRepository;
+		this.countCache = countCache;
+		this.dataVersion = dataVersion;
+		this.readModel = readModel;
+		this.usernameGrams = usernameGrams;
+		this.teamStats = teamStats;
+		this.columnarIndex = columnarIndex;
+		this.addAgeMetrics = metrics.repository("MemberBulkRepository", "addAge");
+		this.changeUsernameMetrics = metrics.repository("MemberBulkRepository", "changeUsername");
+		this.deleteMetrics = metrics.repository("MemberBulkRepository", "delete");
+		this.chunkSize = chunkSize;
+		this.pause = pause;
+	}
+
+	public MemberBulkProgress addAge(MemberSearchCondition condition, int delta,
+		Consumer<MemberBulkProgress> listener) {
+		return execute("addAge", addAgeMetrics, condition, false, false, true, ids -> queryFactory
+			.update(member)
+			.set(member.age, member.age.add(delta))
+			.where(member.id.in(ids))
+			.execute(), listener);
+	}
+
+	public MemberBulkProgress changeUsername(MemberSearchCondition condition, String username,
+		Consumer<MemberBulkProgress> listener) {
+		return execute("changeUsername", changeUsernameMetrics, condition, false, true, false, ids -> queryFactory
+			.update(member)
+			.set(member.username, username)
+			.where(member.id.in(ids))
+			.execute(), listener);
+	}
+
+	public MemberBulkProgress delete(MemberSearchCondition condition, Consumer<MemberBulkProgress> listener) {
+		return execute("delete", deleteMetrics, condition, true, true, true, ids -> queryFactory
+			.delete(member)
+			.where(member.id.in(ids))
+			.execute(), listener);
+	}
+
+	/**
+	 * 청크마다 커밋하므로 진행 중인 트랜잭션 안에서는 호출할 수 없다.
+	 */
+	private MemberBulkProgress execute(String operation, MemberSearchMetrics.Operation operationMetrics,
+		MemberSearchCondition condition, boolean deletes, boolean usernameChanges, boolean statsChanges,
+		ToLongFunction<List<Long>> change, Consumer<MemberBulkProgress> listener) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			throw new IllegalStateException("bulk operations commit per chunk and must not run inside a transaction");
+		}
+		long start = operationMetrics.start();
+		long startNanos = System.nanoTime();
+		int shape = condition.shape();
+		MemberBulkProgress progress = new MemberBulkProgress(operation, 0, 0, Duration.ZERO, false);
+
+		List<Long> teamIds = hasText(condition.getTeamName())
+			? teamRepository.findIdsByName(condition.getTeamName())
+			: null;
+		Long lastId = null;
+		while (teamIds == null || !teamIds.isEmpty()) {
+			Long afterId = lastId;
+			Chunk chunk = transactionTemplate.execute(
+				status -> executeChunk(condition, teamIds, afterId, deletes, usernameChanges, statsChanges, change));
+			if (chunk.ids.isEmpty()) {
+				break;
+			}
+			countCache.invalidateAll();
+			dataVersion.increment();
+			if (chunk.indexChanges != null) {
+				columnarIndex.apply(chunk.indexChanges);
+			}
+			progress = progress.next(chunk.rows, System.nanoTime() - startNanos);
+			log.debug("member bulk {}: chunk {} committed, {} rows ({} rows/sec)", operation, progress.getChunks(),
+				progress.getRows(), Math.round(progress.getRowsPerSecond()));
+			listener.accept(progress);
+			if (chunk.ids.size() < chunkSize) {
+				break;
+			}
+			lastId = chunk.ids.get(chunk.ids.size() - 1);
+			if (!pause()) {
+				operationMetrics.record(shape, start, progress.getRows());
+				log.warn("member bulk {} interrupted after {} rows", operation, progress.getRows());
+				return progress;
+			}
+		}
+
+		progress = progress.complete(System.nanoTime() - startNanos);
+		operationMetrics.record(shape, start, progress.getRows());
+		log.info("member bulk {}: {} rows in {} chunks, {} ms ({} rows/sec)", operation, progress.getRows(),
+			progress.getChunks(), progress.getElapsed().toMillis(), Math.round(progress.getRowsPerSecond()));
+		return progress;
+	}
+
+	private Chunk executeChunk(MemberSearchCondition condition, List<Long> teamIds, Long afterId, boolean deletes,
+		boolean usernameChanges, boolean statsChanges, ToLongFunction<List<Long>> change) {
+		List<Long> ids = queryFactory
+			.select(member.id)
+			.from(member)
+			.where(searchQueries.conditions(condition, teamIds))
+			.where(idGt(afterId))
+			.orderBy(member.id.asc())
+			.limit(chunkSize)
+			.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+			.fetch();
+		if (ids.isEmpty()) {
+			return new Chunk(ids, 0, null);
+		}
+
+		// 지워지는 회원의 팀은 변경 후에 알 수 없으므로 먼저 읽어 둔다
+		List<Long> chunkTeamIds = statsChanges
+			? queryFactory.select(member.team.id).distinct().from(member)
+				.where(member.id.in(ids), member.team.isNotNull())
+				.fetch()
+			: null;
+		long rows = change.applyAsLong(ids);
+		if (usernameChanges && usernameGrams.isEnabled()) {
+			usernameGrams.refresh(ids);
+		}
+		if (chunkTeamIds != null) {
+			teamStats.refresh(chunkTeamIds);
+		}
+		if (readModel.isEnabled()) {
+			readModel.refresh(ids);
+		}
+		return new Chunk(ids, rows, columnarIndex.isEnabled() ? indexChanges(ids, deletes) : null);
+	}
+
+	/**
+	 * 커밋 전에 변경된 상태를 읽어 두고, 커밋에 성공한 뒤 인메모리 인덱스에 반영한다.
+	 */
+	private MemberIndexChanges indexChanges(List<Long> ids, boolean deletes) {
+		MemberIndexChanges changes = new MemberIndexChanges();
+		if (deletes) {
+			ids.forEach(changes::removeMember);
+			return changes;
+		}
+		List<Tuple> rows = queryFactory
+			.select(member.id, member.username, member.age, member.team.id)
+			.from(member)
+			.where(member.id.in(ids))
+			.fetch();
+		for (Tuple row : rows) {
+			changes.putMember(new MemberRow(row.get(member.id), row.get(member.username), row.get(member.age),
+				row.get(member.team.id)));
+		}
+		return changes;
+	}
+
+	private boolean pause() {
+		if (pause.isZero()) {
+			return true;
+		}
+		try {
+			Thread.sleep(pause.toMillis());
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static BooleanExpression idGt(Long afterId) {
+		return afterId != null ? member.id.gt(afterId) : null;
+	}
+
+	private static class Chunk {
+		final List<Long> ids;
+		final long rows;
+		final MemberIndexChanges indexChanges;
+
+		Chunk(List<Long> ids, long rows, MemberIndexChanges indexChanges) {
+			this.ids = ids;
+			this.rows = rows;
+			this.indexChanges = indexChanges;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package study.querydsl.repository;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 검색 조건별 전체 건수 캐시. 무효화는 {@link study.querydsl.event.MemberCountCacheInvalidator}가 담당한다.
+ */
+@Component
+public class MemberCountCache {
+	private final Cache<MemberSearchCondition, Long> cache;
+	private final AtomicLong generation = new AtomicLong();
+
+	public MemberCountCache(@Value("${member.count-cache.maximum-size:10000}") long maximumSize,
+		@Value("${member.count-cache.ttl:30s}") Duration ttl) {
+		this.cache = Caffeine.newBuilder()
+			.maximumSize(maximumSize)
+			.expireAfterWrite(ttl)
+			.recordStats()
+			.build();
+	}
+
+	public long get(MemberSearchCondition condition, LongSupplier countQuery) {
+		if (inWriteTransaction()) {
+			return countQuery.getAsLong();
+		}
+
+		MemberSearchCondition key = condition.normalized();
+		Long cached = cache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		// count 도중 무효화가 일어났다면 이미 낡은 값일 수 있으므로 저장하지 않는다
+		long startedAt = generation.get();
+		long total = countQuery.getAsLong();
+		if (generation.get() == startedAt) {
+			cache.put(key, total);
+		}
+		return total;
+	}
+
+	public boolean contains(MemberSearchCondition condition) {
+		return !inWriteTransaction() && cache.getIfPresent(condition.normalized()) != null;
+	}
+
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	/**
+	 * 쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 count에 섞일 수 있으므로 캐시를 거치지 않는다
+	 */
+	private static boolean inWriteTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive()
+			&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+}
@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+
+/**
+ * Member, Team 데이터의 버전. 변경이 커밋될 때마다 올라간다.
+ * 증가는 {@link study.querydsl.event.MemberDataVersionListener}가 커밋 직후 같은 스레드에서 하므로,
+ * 쓰기 요청이 응답을 받은 뒤 같은 클라이언트가 읽는 버전은 항상 그 쓰기 이후의 값이다.
+ * 이벤트가 없는 JPQL 벌크 변경과 대량 적재는 호출한 쪽(MemberBulkRepository, MemberSeeder)이 커밋 후 직접 올린다.
+ * 새 벌크 경로를 추가하면 그쪽에서도 올려야 한다.
+ * 버전은 이 프로세스 안의 카운터라 인스턴스가 하나라고 가정한다. 여러 인스턴스가 같은 DB를 쓰거나
+ * 애플리케이션 밖에서 DB를 바꾸면 다른 쪽의 변경을 알 수 없으므로, 그때는 ETag를 끄거나 공유 저장소의 버전을 써야 한다.
+ */
+@Component
+public class MemberDataVersion {
+	/**
+	 * 버전은 프로세스마다 0부터 시작하므로, 재시작 전후의 같은 버전을 구분할 때 쓴다
+	 */
+	@Getter
+	private final long epoch = System.currentTimeMillis();
+	private volatile Snapshot snapshot = new Snapshot(0, epoch);
+
+	public long current() {
+		return snapshot.getVersion();
+	}
+
+	/**
+	 * 버전과 마지막 변경 시각을 한 번에 읽는다
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	public synchronized void increment() {
+		snapshot = new Snapshot(snapshot.getVersion() + 1, System.currentTimeMillis());
+	}
+
+	@Getter
+	public static class Snapshot {
+		private final long version;
+		/**
+		 * 마지막 변경이 커밋된 시각(epoch millis). 변경이 없었으면 애플리케이션 시작 시각
+		 */
+		private final long lastModified;
+
+		Snapshot(long version, long lastModified) {
+			this.version = version;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -6,82 +6,109 @@ import static study.querydsl.entity.QTeam.*;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.querydsl.core.BooleanBuilder;
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.JPQLQueryFactory;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.index.SearchWorkload;
+import study.querydsl.metrics.MemberSearchMetrics;
 
 @Repository
 public class MemberJpaRepository {
 
 	private final EntityManager em;
-	private final JPQLQueryFactory queryFactory;
-
-	public MemberJpaRepository(EntityManager em) {
+	private final JPAQueryFactory queryFactory;
+	private final TeamRepository teamRepository;
+	private final int streamFetchSize;
+	private final SearchWorkload workload;
+	private final MemberTeamViewRepository readModel;
+	private final MemberSearchQueries searchQueries;
+	private final MemberSearchMetrics.Operation searchByBuilderMetrics;
+	private final MemberSearchMetrics.Operation searchMetrics;
+	private final MemberSearchMetrics.Operation searchStreamMetrics;
+
+	public MemberJpaRepository(EntityManager em, TeamRepository teamRepository,
+		@Value("${member.export.fetch-size:1000}") int streamFetchSize, SearchWorkload workload,
+		MemberTeamViewRepository readModel, MemberSearchQueries searchQueries, MemberSearchMetrics metrics) {
 		this.em = em;
 		this.queryFactory = new JPAQueryFactory(em);
+		this.teamRepository = teamRepository;
+		this.streamFetchSize = streamFetchSize;
+		this.workload = workload;
+		this.readModel = readModel;
+		this.searchQueries = searchQueries;
+		this.searchByBuilderMetrics = metrics.repository("MemberJpaRepository", "searchByBuilder");
+		this.searchMetrics = metrics.repository("MemberJpaRepository", "search");
+		this.searchStreamMetrics = metrics.repository("MemberJpaRepository", "searchStream");
 	}
 
 	public void save(Member member) {
 		em.persist(member);
 	}
 
+	@Transactional(readOnly = true)
 	public Optional<Member> findById(Long id) {
 		Member findMember = em.find(Member.class, id);
 		return Optional.ofNullable(findMember);
 	}
 
+	@Transactional(readOnly = true)
 	public List<Member> findAll() {
 		return em.createQuery("select m from Member m", Member.class)
+			.setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(Member.WITH_TEAM))
 			.getResultList();
 	}
 
+	@Transactional(readOnly = true)
 	public List<Member> findAll_Querydsl() {
 		return queryFactory
 			.selectFrom(member)
+			.setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(Member.WITH_TEAM))
 			.fetch();
 	}
 
+	@Transactional(readOnly = true)
 	public List<Member> findByUsername(String username) {
 		return em.createQuery("select m from Member m where m.username = :username", Member.class)
 			.setParameter("username", username)
+			.setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(Member.WITH_TEAM))
 			.getResultList();
 	}
 
+	@Transactional(readOnly = true)
 	public List<Member> findByUsername_Querydsl(String username) {
 		return queryFactory
 			.selectFrom(member)
 			.where(member.username.eq(username))
+			.setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(Member.WITH_TEAM))
 			.fetch();
 	}
 
+	@Transactional(readOnly = true)
 	public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+		long start = searchByBuilderMetrics.start();
+		workload.record(condition.shape(), null);
 
 		BooleanBuilder builder = new BooleanBuilder();
-		if (hasText(condition.getUsername())) {
-			builder.and(member.username.eq(condition.getUsername()));
-		}
-		if (hasText(condition.getTeamName())) {
-			builder.and(team.name.eq(condition.getTeamName()));
-		}
-		if (condition.getAgeGoe() != null) {
-			builder.and(member.age.goe(condition.getAgeGoe()));
-		}
-		if (condition.getAgeLoe() != null) {
-			builder.and(member.age.loe(condition.getAgeLoe()));
+		for (Predicate predicate : searchQueries.conditions(condition, findTeamIds(condition.getTeamName()))) {
+			builder.and(predicate);
 		}
 
-		return queryFactory
+		List<MemberTeamDto> result = queryFactory
 			.select(new QMemberTeamDto(
 				member.id.as("memberId"),
 				member.username,
@@ -93,41 +120,43 @@ public class MemberJpaRepository {
 			.leftJoin(member.team, team)
 			.where(builder)
 			.fetch();
+		searchByBuilderMetrics.record(condition.shape(), start, result.size());
+		return result;
 	}
 
+	@Transactional(readOnly = true)
 	public List<MemberTeamDto> search(MemberSearchCondition condition) {
-		return queryFactory
-			.select(new QMemberTeamDto(
-				member.id,
-				member.username,
-				member.age,
-				team.id,
-				team.name
-			))
-			.from(member)
-			.leftJoin(member.team, team)
-			.where(
-				usernameEq(condition.getUsername()),
-				teamNameEq(condition.getTeamName()),
-				ageGoe(condition.getAgeGoe()),
-				ageLoe(condition.getAgeLoe())
-			)
+		long start = searchMetrics.start();
+		workload.record(condition.shape(), null);
+		if (readModel.isEnabled()) {
+			List<MemberTeamDto> result = readModel.search(condition);
+			searchMetrics.record(condition.shape(), start, result.size());
+			return result;
+		}
+		List<MemberTeamDto> result = searchQueries.search(condition, findTeamIds(condition.getTeamName()))
 			.fetch();
+		searchMetrics.record(condition.shape(), start, result.size());
+		return result;
 	}
 
-	private BooleanExpression usernameEq(String username) {
-		return hasText(username) ? member.username.eq(username) : null;
-	}
-
-	private BooleanExpression teamNameEq(String teamName) {
-		return hasText(teamName) ? team.name.eq(teamName) : null;
-	}
-
-	private BooleanExpression ageGoe(Integer ageGoe) {
-		return ageGoe != null ? member.age.goe(ageGoe) : null;
+	/**
+	 * 결과를 한 번에 메모리에 올리지 않고 JDBC fetch size 단위로 읽는다.
+	 * 반환된 Stream은 트랜잭션 안에서 소비하고 반드시 닫아야 한다. 지연 시간과 건수는 닫을 때 기록된다.
+	 */
+	public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition) {
+		long start = searchStreamMetrics.start();
+		int shape = condition.shape();
+		workload.record(shape, null);
+		LongAdder rows = new LongAdder();
+		return searchQueries.search(condition, findTeamIds(condition.getTeamName()))
+			.setHint(QueryHints.HINT_FETCH_SIZE, streamFetchSize)
+			.setHint(QueryHints.HINT_READONLY, true)
+			.stream()
+			.peek(row -> rows.increment())
+			.onClose(() -> searchStreamMetrics.record(shape, start, rows.sum()));
 	}
 
-	private BooleanExpression ageLoe(Integer ageLoe) {
-		return ageLoe != null ? member.age.loe(ageLoe) : null;
+	private List<Long> findTeamIds(String teamName) {
+		return hasText(teamName) ? teamRepository.findIdsByName(teamName) : null;
 	}
 }
@@ -2,6 +2,7 @@ package study.querydsl.repository;
 
 import java.util.List;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 
@@ -9,5 +10,6 @@ import study.querydsl.entity.Member;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom,
 	QuerydslPredicateExecutor<Member> {
+	@EntityGraph(Member.WITH_TEAM)
 	List<Member> findByUsername(String username);
 }
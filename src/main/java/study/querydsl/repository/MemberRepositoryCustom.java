@@ -1,10 +1,13 @@
 package study.querydsl.repository;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -14,4 +17,11 @@ public interface MemberRepositoryCustom {
 	Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
 
 	Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+	MemberCursorPage searchByCursor(MemberSearchCondition condition, String cursor, int size, MemberCursorSort sort);
+
+	/**
+	 * 여러 조건을 하나의 쿼리로 검색한다. 결과는 조건의 순번별로 돌려준다.
+	 */
+	Map<Integer, List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
 }
@@ -4,7 +4,14 @@ import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
 
 import javax.persistence.EntityManager;
 
@@ -12,121 +19,334 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 
+import study.querydsl.dto.InvalidSearchRequestException;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.index.SearchWorkload;
+import study.querydsl.metrics.MemberSearchMetrics;
 
+/**
+ * 모든 검색은 읽기 전용 트랜잭션으로 실행되어, replica가 설정되어 있으면 replica에서 읽는다.
+ * 쓰기 트랜잭션 안에서 호출하면 그 트랜잭션에 참여하므로 커밋 전 변경도 보인다.
+ */
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
+	private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+	private static final int MAX_BATCH_CONDITIONS = 100;
+
 	private final JPAQueryFactory queryFactory;
+	private final MemberCountCache countCache;
+	private final MemberSearchQueries searchQueries;
+	private final ParallelCountExecutor parallelCountExecutor;
+	private final TeamRepository teamRepository;
+	private final SearchWorkload workload;
+	private final MemberTeamViewRepository readModel;
+	private final MemberSearchMetrics.Operation searchMetrics;
+	private final MemberSearchMetrics.Operation searchPageSimpleMetrics;
+	private final MemberSearchMetrics.Operation searchPageComplexMetrics;
+	private final MemberSearchMetrics.Operation searchByCursorMetrics;
+	private final MemberSearchMetrics.Operation searchBatchMetrics;
 
-	public MemberRepositoryImpl(EntityManager em) {
+	public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache,
+		MemberSearchQueries searchQueries,
+		ParallelCountExecutor parallelCountExecutor, TeamRepository teamRepository, SearchWorkload workload,
+		MemberTeamViewRepository readModel, MemberSearchMetrics metrics) {
 		this.queryFactory = new JPAQueryFactory(em);
+		this.countCache = countCache;
+		this.searchQueries = searchQueries;
+		this.parallelCountExecutor = parallelCountExecutor;
+		this.teamRepository = teamRepository;
+		this.workload = workload;
+		this.readModel = readModel;
+		this.searchMetrics = metrics.repository("MemberRepository", "search");
+		this.searchPageSimpleMetrics = metrics.repository("MemberRepository", "searchPageSimple");
+		this.searchPageComplexMetrics = metrics.repository("MemberRepository", "searchPageComplex");
+		this.searchByCursorMetrics = metrics.repository("MemberRepository", "searchByCursor");
+		this.searchBatchMetrics = metrics.repository("MemberRepository", "searchBatch");
 	}
 
 	@Override
 	public List<MemberTeamDto> search(MemberSearchCondition condition) {
-		return queryFactory
-			.select(new QMemberTeamDto(
-				member.id,
-				member.username,
-				member.age,
-				team.id,
-				team.name
-			))
-			.from(member)
-			.leftJoin(member.team, team)
-			.where(
-				usernameEq(condition.getUsername()),
-				teamNameEq(condition.getTeamName()),
-				ageGoe(condition.getAgeGoe()),
-				ageLoe(condition.getAgeLoe())
-			)
-			.fetch();
+		long start = searchMetrics.start();
+		workload.record(condition.shape(), null);
+		List<MemberTeamDto> result;
+		if (readModel.isEnabled()) {
+			result = readModel.search(condition);
+		} else {
+			List<Long> teamIds = findTeamIds(condition.getTeamName());
+			if (teamIds != null && teamIds.isEmpty()) {
+				result = new ArrayList<>();
+			} else {
+				result = searchQueries.search(condition, teamIds).fetch();
+			}
+		}
+		searchMetrics.record(condition.shape(), start, result.size());
+		return result;
 	}
 
 	@Override
 	public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-		QueryResults<MemberTeamDto> results = queryFactory
-			.select(new QMemberTeamDto(
-				member.id,
-				member.username,
-				member.age,
-				team.id,
-				team.name
-			))
+		long start = searchPageSimpleMetrics.start();
+		workload.record(condition.shape(), null);
+		if (readModel.isEnabled()) {
+			Page<MemberTeamDto> page = readModel.searchPage(condition, pageable);
+			searchPageSimpleMetrics.record(condition.shape(), start, page.getNumberOfElements());
+			return page;
+		}
+		Predicate[] where = searchQueries.conditions(condition, findTeamIds(condition.getTeamName()));
+		List<MemberTeamDto> content = queryFactory
+			.select(MemberSearchQueries.MEMBER_TEAM_DTO)
 			.from(member)
 			.leftJoin(member.team, team)
-			.where(
-				usernameEq(condition.getUsername()),
-				teamNameEq(condition.getTeamName()),
-				ageGoe(condition.getAgeGoe()),
-				ageLoe(condition.getAgeLoe())
-			)
+			.where(where)
 			.offset(pageable.getOffset())
 			.limit(pageable.getPageSize())
-			.fetchResults();
-
-		List<MemberTeamDto> content = results.getResults();
-		long total = results.getTotal();
+			.fetch();
 
-		return new PageImpl<>(content, pageable, total);
+		CountQuery countQuery = CountQuery.from(queryFactory, member, member.id)
+			.leftJoin(member.team, team)
+			.where(where);
+		int shape = condition.shape();
+		Page<MemberTeamDto> page = PageableExecutionUtils.getPage(content, pageable,
+			() -> searchPageSimpleMetrics.countQuery(shape, countQuery::fetch));
+		searchPageSimpleMetrics.record(shape, start, content.size());
+		return page;
 	}
 
 	@Override
 	public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-		List<MemberTeamDto> content = queryFactory
-			.select(new QMemberTeamDto(
-				member.id,
-				member.username,
-				member.age,
-				team.id,
-				team.name
-			))
-			.from(member)
+		long start = searchPageComplexMetrics.start();
+		int shape = condition.shape();
+		workload.record(shape, null);
+		if (readModel.isEnabled()) {
+			Page<MemberTeamDto> page = readModel.searchPage(condition, pageable);
+			searchPageComplexMetrics.record(shape, start, page.getNumberOfElements());
+			return page;
+		}
+		List<Long> teamIds = findTeamIds(condition.getTeamName());
+		if (teamIds != null && teamIds.isEmpty()) {
+			searchPageComplexMetrics.record(shape, start, 0);
+			return new PageImpl<>(new ArrayList<>(), pageable, 0);
+		}
+
+		// 팀 조건은 member.team_id로 거르므로 count에는 team join이 붙지 않는다
+		CountQuery countQuery = CountQuery.from(queryFactory, member, member.id)
 			.leftJoin(member.team, team)
-			.where(
-				usernameEq(condition.getUsername()),
-				teamNameEq(condition.getTeamName()),
-				ageGoe(condition.getAgeGoe()),
-				ageLoe(condition.getAgeLoe())
-			)
-			.offset(pageable.getOffset())
-			.limit(pageable.getPageSize())
-			.fetch();
+			.where(searchQueries.conditions(condition, teamIds));
+		LongSupplier total = () -> countCache.get(condition,
+			() -> searchPageComplexMetrics.countQuery(shape, countQuery::fetch));
+		CompletableFuture<Long> parallelTotal = countCache.contains(condition)
+			? null
+			: parallelCountExecutor.submit(total);
+
+		List<MemberTeamDto> content;
+		try {
+			content = searchQueries.search(condition, teamIds)
+				.offset(pageable.getOffset())
+				.limit(pageable.getPageSize())
+				.fetch();
+		} catch (RuntimeException e) {
+			// 결과를 쓰지 않을 count가 커넥션을 계속 잡고 있지 않게 한다
+			if (parallelTotal != null) {
+				parallelTotal.cancel(true);
+			}
+			throw e;
+		}
+
+		Page<MemberTeamDto> page = parallelTotal == null
+			? PageableExecutionUtils.getPage(content, pageable, total)
+			: PageableExecutionUtils.getPage(content, pageable, () -> ParallelCountExecutor.join(parallelTotal));
+		if (parallelTotal != null) {
+			// 첫 페이지가 다 차지 않았거나 마지막 페이지라 count를 쓰지 않았으면 풀 스레드와 커넥션을 돌려준다.
+			// 이미 끝난 count에는 영향이 없다
+			parallelTotal.cancel(true);
+		}
+		searchPageComplexMetrics.record(shape, start, content.size());
+		return page;
+	}
+
+	@Override
+	public MemberCursorPage searchByCursor(MemberSearchCondition condition, String cursor, int size,
+		MemberCursorSort sort) {
+		if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+			throw new InvalidSearchRequestException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+		}
+		MemberCursor after = cursor != null ? MemberCursor.decode(cursor, sort) : null;
+		long start = searchByCursorMetrics.start();
+		workload.record(condition.shape(), sort);
+
+		List<MemberTeamDto> rows = readModel.isEnabled()
+			? readModel.searchAfter(condition, after, size + 1, sort)
+			: searchAfter(condition, after, size + 1, sort);
+
+		int shape = condition.shape();
+		if (rows.size() <= size) {
+			searchByCursorMetrics.record(shape, start, rows.size());
+			return new MemberCursorPage(rows, null);
+		}
+		List<MemberTeamDto> content = rows.subList(0, size);
+		searchByCursorMetrics.record(shape, start, content.size());
+		return new MemberCursorPage(content, MemberCursor.after(sort, content.get(size - 1)).encode());
+	}
+
+	/**
+	 * 모든 조건을 OR로 묶어 한 번에 읽은 뒤, 각 행이 어느 조건에 맞는지 메모리에서 나눈다.
+	 * 팀 조건은 조건마다 팀 id를 찾는 대신 join된 team.name으로 걸러 SQL을 한 번만 실행한다.
+	 * 조건이 없는 검색은 회원 전체를 읽게 되므로 받지 않는다. 전체 목록은 페이징 검색을 쓴다.
+	 */
+	@Override
+	public Map<Integer, List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+		if (conditions.size() > MAX_BATCH_CONDITIONS) {
+			throw new InvalidSearchRequestException("at most " + MAX_BATCH_CONDITIONS + " conditions are allowed");
+		}
+		List<MemberSearchCondition> normalized = new ArrayList<>(conditions.size());
+		for (int i = 0; i < conditions.size(); i++) {
+			if (conditions.get(i) == null) {
+				throw new InvalidSearchRequestException("condition " + i + " is null");
+			}
+			MemberSearchCondition condition = conditions.get(i).normalized();
+			if (condition.shape() == 0) {
+				throw new InvalidSearchRequestException("condition " + i + " has no criteria");
+			}
+			normalized.add(condition);
+		}
 
-		JPAQuery<Member> countQuery = queryFactory
-			.selectFrom(member)
+		long start = searchBatchMetrics.start();
+		Map<Integer, List<MemberTeamDto>> result = new LinkedHashMap<>();
+		BooleanBuilder anyCondition = new BooleanBuilder();
+		int shapes = 0;
+		for (int i = 0; i < normalized.size(); i++) {
+			MemberSearchCondition condition = normalized.get(i);
+			result.put(i, new ArrayList<>());
+			shapes |= condition.shape();
+			workload.record(condition.shape(), null);
+			anyCondition.or(ExpressionUtils.allOf(searchQueries.joinedTeamConditions(condition)));
+		}
+		if (normalized.isEmpty()) {
+			return result;
+		}
+
+		List<MemberTeamDto> rows = queryFactory
+			.select(MemberSearchQueries.MEMBER_TEAM_DTO)
+			.from(member)
 			.leftJoin(member.team, team)
-			.where(
-				usernameEq(condition.getUsername()),
-				teamNameEq(condition.getTeamName()),
-				ageGoe(condition.getAgeGoe()),
-				ageLoe(condition.getAgeLoe())
-			);
-
-		return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+			.where(anyCondition)
+			.fetch();
+		BatchConditionIndex index = new BatchConditionIndex(normalized);
+		for (MemberTeamDto row : rows) {
+			index.forEachMatch(row, i -> result.get(i).add(row));
+		}
+		searchBatchMetrics.record(shapes, start, rows.size());
+		return result;
 	}
 
-	private BooleanExpression usernameEq(String username) {
-		return hasText(username) ? member.username.eq(username) : null;
+	private List<MemberTeamDto> searchAfter(MemberSearchCondition condition, MemberCursor after, int limit,
+		MemberCursorSort sort) {
+		return searchQueries.search(condition, findTeamIds(condition.getTeamName()))
+			.where(seekAfter(after))
+			.orderBy(MemberSearchQueries.cursorOrder(sort))
+			.limit(limit)
+			.fetch();
 	}
 
-	private BooleanExpression teamNameEq(String teamName) {
-		return hasText(teamName) ? team.name.eq(teamName) : null;
+	private BooleanExpression seekAfter(MemberCursor after) {
+		if (after == null) {
+			return null;
+		}
+		if (after.getSort() == MemberCursorSort.AGE) {
+			return member.age.gt(after.getAge())
+				.or(member.age.eq(after.getAge()).and(member.id.gt(after.getId())));
+		}
+		return member.id.gt(after.getId());
 	}
 
-	private BooleanExpression ageGoe(Integer ageGoe) {
-		return ageGoe != null ? member.age.goe(ageGoe) : null;
+	/**
+	 * 팀 이름을 2차 캐시된 팀 id로 바꿔 member.team_id로 거른다. join된 team 행을 이름으로 비교하지 않아도 된다.
+	 */
+	private List<Long> findTeamIds(String teamName) {
+		return hasText(teamName) ? teamRepository.findIdsByName(teamName) : null;
 	}
 
-	private BooleanExpression ageLoe(Integer ageLoe) {
-		return ageLoe != null ? member.age.loe(ageLoe) : null;
+	/**
+	 * 배치의 각 행을 모든 조건과 비교하지 않도록, username, username 접두어, 팀 이름이 지정된 조건은 그 값으로 찾는다.
+	 * 셋 다 없는 조건(나이, 부분 문자열만)만 모든 행과 비교한다. 후보로 고른 조건도 나머지 항목은 다시 확인한다.
+	 */
+	private static class BatchConditionIndex {
+		private final List<MemberSearchCondition> conditions;
+		private final Map<String, List<Integer>> byUsername = new HashMap<>();
+		private final Map<String, List<Integer>> byPrefix = new HashMap<>();
+		private final Map<String, List<Integer>> byTeamName = new HashMap<>();
+		private final List<Integer> unindexed = new ArrayList<>();
+		private int maxPrefixLength;
+
+		BatchConditionIndex(List<MemberSearchCondition> conditions) {
+			this.conditions = conditions;
+			for (int i = 0; i < conditions.size(); i++) {
+				MemberSearchCondition condition = conditions.get(i);
+				if (condition.getUsername() != null) {
+					byUsername.computeIfAbsent(condition.getUsername(), key -> new ArrayList<>()).add(i);
+				} else if (condition.getUsernameStartsWith() != null) {
+					String prefix = condition.getUsernameStartsWith();
+					byPrefix.computeIfAbsent(prefix, key -> new ArrayList<>()).add(i);
+					maxPrefixLength = Math.max(maxPrefixLength, prefix.length());
+				} else if (condition.getTeamName() != null) {
+					byTeamName.computeIfAbsent(condition.getTeamName(), key -> new ArrayList<>()).add(i);
+				} else {
+					unindexed.add(i);
+				}
+			}
+		}
+
+		/**
+		 * 행에 맞는 조건의 순번을 조건 순서와 관계없이 넘긴다. 조건마다 한 번씩만 넘긴다.
+		 */
+		void forEachMatch(MemberTeamDto row, IntConsumer action) {
+			String username = row.getUsername();
+			if (username != null) {
+				check(row, byUsername.get(username), action);
+				if (!byPrefix.isEmpty()) {
+					for (int length = 1; length <= Math.min(username.length(), maxPrefixLength); length++) {
+						check(row, byPrefix.get(username.substring(0, length)), action);
+					}
+				}
+			}
+			if (row.getTeamName() != null) {
+				check(row, byTeamName.get(row.getTeamName()), action);
+			}
+			check(row, unindexed, action);
+		}
+
+		private void check(MemberTeamDto row, List<Integer> candidates, IntConsumer action) {
+			if (candidates == null) {
+				return;
+			}
+			for (int i : candidates) {
+				if (matches(row, conditions.get(i))) {
+					action.accept(i);
+				}
+			}
+		}
+
+		private static boolean matches(MemberTeamDto row, MemberSearchCondition condition) {
+			return (condition.getUsername() == null || condition.getUsername().equals(row.getUsername()))
+				&& (condition.getUsernameStartsWith() == null
+				|| (row.getUsername() != null && row.getUsername().startsWith(condition.getUsernameStartsWith())))
+				&& (condition.getUsernameContains() == null
+				|| (row.getUsername() != null && row.getUsername().contains(condition.getUsernameContains())))
+				&& (condition.getTeamName() == null || condition.getTeamName().equals(row.getTeamName()))
+				&& (condition.getAgeGoe() == null || row.getAge() >= condition.getAgeGoe())
+				&& (condition.getAgeLoe() == null || row.getAge() <= condition.getAgeLoe());
+		}
 	}
 }
@@ -0,0 +1,91 @@
+package study.querydsl.repository;
+
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.EqualsAndHashCode;
+import study.querydsl.datasource.ReadYourWrites;
+import study.querydsl.datasource.ReplicaDataSourceProperties;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * 같은 조건, 같은 페이지로 동시에 들어온 searchPageSimple/searchPageComplex를 한 번의 content/count 쿼리로 처리한다.
+ * 키에 {@link MemberDataVersion}을 넣어, 호출한 쪽이 커밋한 쓰기보다 먼저 시작된 실행에는 합류하지 않는다.
+ * replica를 쓸 때는 읽을 DataSource도 키에 넣어, 쓰기 직후 primary에서 읽어야 하는 호출이
+ * replica에서 읽는 실행에 합류하지 않게 한다.
+ * 호출한 쪽의 쓰기 트랜잭션 안에서는 커밋되지 않은 변경이 보일 수 있으므로 합치지 않고 바로 실행한다.
+ * 읽기 전용 트랜잭션에는 커밋되지 않은 변경이 없으므로 합친다. 비동기 검색은 실행기가 연 읽기 전용 트랜잭션 안에서 여기로 온다.
+ * 결과 Page와 DTO는 합류한 호출들이 함께 쓰므로 변경하지 않아야 한다.
+ */
+@Component
+public class MemberSearchCoalescer {
+	private final MemberRepository memberRepository;
+	private final MemberDataVersion dataVersion;
+	private final ReplicaDataSourceProperties replicaProperties;
+	private final boolean enabled;
+	private final SingleFlight<Key, Page<MemberTeamDto>> flights = new SingleFlight<>();
+
+	public MemberSearchCoalescer(MemberRepository memberRepository, MemberDataVersion dataVersion,
+		ReplicaDataSourceProperties replicaProperties,
+		@Value("${member.search.coalescing.enabled:true}") boolean enabled) {
+		this.memberRepository = memberRepository;
+		this.dataVersion = dataVersion;
+		this.replicaProperties = replicaProperties;
+		this.enabled = enabled;
+	}
+
+	public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+		return coalesce("searchPageSimple", condition, pageable,
+			() -> memberRepository.searchPageSimple(condition, pageable));
+	}
+
+	public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+		return coalesce("searchPageComplex", condition, pageable,
+			() -> memberRepository.searchPageComplex(condition, pageable));
+	}
+
+	public long getExecutions() {
+		return flights.getExecutions();
+	}
+
+	/**
+	 * DB에 가지 않고 다른 요청의 결과를 받은 검색 수. 그만큼 content/count 쿼리를 아꼈다.
+	 */
+	public long getShared() {
+		return flights.getShared();
+	}
+
+	private Page<MemberTeamDto> coalesce(String operation, MemberSearchCondition condition, Pageable pageable,
+		Supplier<Page<MemberTeamDto>> search) {
+		if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+			&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+			return search.get();
+		}
+		Key key = new Key(operation, condition.normalized(), pageable, dataVersion.current(),
+			ReadYourWrites.routesToPrimary(replicaProperties));
+		return flights.execute(key, search);
+	}
+
+	@EqualsAndHashCode
+	private static class Key {
+		final String operation;
+		final MemberSearchCondition condition;
+		final Pageable pageable;
+		final long dataVersion;
+		final boolean primary;
+
+		Key(String operation, MemberSearchCondition condition, Pageable pageable, long dataVersion, boolean primary) {
+			this.operation = operation;
+			this.condition = condition;
+			this.pageable = pageable;
+			this.dataVersion = dataVersion;
+			this.primary = primary;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.*;
+import static study.querydsl.dto.MemberSearchCondition.*;
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QMemberTeamView.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.MemberCursorSort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.projection.FastProjections;
+
+/**
+ * member 검색이 실행하는 쿼리와 검색 조건을 만든다. 검색, 페이징, 커서, 배치, 벌크 변경, member_team 읽기 모델이
+ * 모두 여기서 조건을 받으므로 조건 항목이 경로마다 달라지지 않는다.
+ * 쿼리 자체는 패키지 밖에 내주지 않고, 인덱스 점검에는 shape별 쿼리 구조(QueryMetadata)만 준다.
+ */
+@Component
+public class MemberSearchQueries {
+	static final FactoryExpression<MemberTeamDto> MEMBER_TEAM_DTO = FastProjections.constructor(
+		MemberTeamDto.class,
+		member.id,
+		member.username,
+		member.age,
+		team.id,
+		team.name
+	);
+
+	private final JPAQueryFactory queryFactory;
+	private final MemberUsernameGramRepository usernameGrams;
+
+	MemberSearchQueries(EntityManager em, MemberUsernameGramRepository usernameGrams) {
+		this.queryFactory = new JPAQueryFactory(em);
+		this.usernameGrams = usernameGrams;
+	}
+
+	/**
+	 * shape와 정렬의 검색 쿼리를 자리표시 값으로 만든 구조. 실행하지 않고 실행 계획을 확인하는 데 쓴다.
+	 * 정렬이 null이면 정렬 없는 검색, 아니면 커서 검색의 첫 페이지 쿼리다.
+	 * 트라이그램을 쓰는 usernameContains로 만든다. 짧은 검색어는 username like만 남아 인덱스와 관계가 없다.
+	 */
+	public QueryMetadata shapeMetadata(int shape, MemberCursorSort sort) {
+		JPQLQuery<?> query = search(placeholder(shape), (shape & TEAM_NAME) != 0 ? List.of(-1L, -2L) : null);
+		return (sort != null ? query.orderBy(cursorOrder(sort)) : query).getMetadata();
+	}
+
+	/**
+	 * @param teamIds 팀 이름으로 찾은 팀 id. null이면 팀 조건이 없다.
+	 */
+	JPAQuery<MemberTeamDto> search(MemberSearchCondition condition, List<Long> teamIds) {
+		return queryFactory
+			.select(MEMBER_TEAM_DTO)
+			.from(member)
+			.leftJoin(member.team, team)
+			.where(conditions(condition, teamIds));
+	}
+
+	/**
+	 * member 테이블의 검색 조건. 팀은 팀 id로 거르므로 team join 없이도 쓸 수 있다(count, 벌크 변경).
+	 * @param teamIds 팀 이름으로 찾은 팀 id. null이면 팀 조건이 없다.
+	 */
+	Predicate[] conditions(MemberSearchCondition condition, List<Long> teamIds) {
+		return predicates(condition, member.id, member.username, member.age,
+			teamIds != null ? member.team.id.in(teamIds) : null);
+	}
+
+	/**
+	 * 팀 이름을 join된 team.name으로 비교하는 조건. member.team을 team으로 join한 쿼리에서만 쓴다.
+	 */
+	Predicate[] joinedTeamConditions(MemberSearchCondition condition) {
+		return predicates(condition, member.id, member.username, member.age,
+			hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null);
+	}
+
+	/**
+	 * member_team 읽기 모델의 조건
+	 */
+	Predicate[] readModelConditions(MemberSearchCondition condition) {
+		return predicates(condition, memberTeamView.memberId, memberTeamView.username, memberTeamView.age,
+			hasText(condition.getTeamName()) ? memberTeamView.teamName.eq(condition.getTeamName()) : null);
+	}
+
+	/**
+	 * 모든 검색 경로가 이 한 곳에서 조건을 만든다. 조건 항목을 추가하면 여기에만 추가한다.
+	 */
+	private Predicate[] predicates(MemberSearchCondition condition, NumberPath<Long> memberId,
+		StringPath username, NumberPath<Integer> age, Predicate teamCondition) {
+		return new Predicate[] {
+			hasText(condition.getUsername()) ? username.eq(condition.getUsername()) : null,
+			UsernamePredicates.startsWith(username, condition.getUsernameStartsWith()),
+			UsernamePredicates.contains(memberId, username, condition.getUsernameContains(),
+				usernameGrams.isEnabled()),
+			teamCondition,
+			condition.getAgeGoe() != null ? age.goe(condition.getAgeGoe()) : null,
+			condition.getAgeLoe() != null ? age.loe(condition.getAgeLoe()) : null
+		};
+	}
+
+	/**
+	 * shape의 조건마다 값을 채운 조건. usernameContains는 트라이그램을 쓰는 길이로 둔다.
+	 * 팀 id 목록은 원소가 하나면 in 대신 =로 렌더링되므로 두 개를 쓴다.
+	 */
+	private static MemberSearchCondition placeholder(int shape) {
+		MemberSearchCondition placeholder = new MemberSearchCondition();
+		placeholder.setUsername((shape & USERNAME) != 0 ? "username" : null);
+		placeholder.setUsernameStartsWith((shape & USERNAME_STARTS_WITH) != 0 ? "prefix" : null);
+		placeholder.setUsernameContains((shape & USERNAME_CONTAINS) != 0 ? "part" : null);
+		placeholder.setTeamName((shape & TEAM_NAME) != 0 ? "teamName" : null);
+		placeholder.setAgeGoe((shape & AGE_GOE) != 0 ? 0 : null);
+		placeholder.setAgeLoe((shape & AGE_LOE) != 0 ? 100 : null);
+		return placeholder;
+	}
+
+	static OrderSpecifier<?>[] cursorOrder(MemberCursorSort sort) {
+		if (sort == MemberCursorSort.AGE) {
+			return new OrderSpecifier<?>[] {member.age.asc(), member.id.asc()};
+		}
+		return new OrderSpecifier<?>[] {member.id.asc()};
+	}
+}
@@ -0,0 +1,196 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMemberTeamView.*;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.MemberCursor;
+import study.querydsl.dto.MemberCursorSort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.MemberTeamView;
+import study.querydsl.metrics.MemberSearchMetrics;
+import study.querydsl.projection.FastProjections;
+
+/**
+ * member_team 읽기 모델 검색. member.search.read-model.enabled=true 이면 검색 리포지토리가 join 쿼리 대신 사용한다.
+ */
+@Slf4j
+@Repository
+public class MemberTeamViewRepository {
+	private static final FactoryExpression<MemberTeamDto> MEMBER_TEAM_DTO = FastProjections.constructor(
+		MemberTeamDto.class,
+		memberTeamView.memberId,
+		memberTeamView.username,
+		memberTeamView.age,
+		memberTeamView.teamId,
+		memberTeamView.teamName
+	);
+
+	private final EntityManager em;
+	private final JPAQueryFactory queryFactory;
+	private final MemberCountCache countCache;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+	private final MemberSearchQueries searchQueries;
+	private final MemberSearchMetrics.Operation searchPageMetrics;
+
+	public MemberTeamViewRepository(EntityManager em, MemberCountCache countCache,
+		PlatformTransactionManager transactionManager,
+		@Value("${member.search.read-model.enabled:false}") boolean enabled, MemberSearchQueries searchQueries,
+		MemberSearchMetrics metrics) {
+		this.em = em;
+		this.queryFactory = new JPAQueryFactory(em);
+		this.countCache = countCache;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.enabled = enabled;
+		this.searchQueries = searchQueries;
+		this.searchPageMetrics = metrics.repository("MemberTeamViewRepository", "searchPage");
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public List<MemberTeamDto> search(MemberSearchCondition condition) {
+		return searchQuery(condition).fetch();
+	}
+
+	public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+		List<MemberTeamDto> content = searchQuery(condition)
+			.offset(pageable.getOffset())
+			.limit(pageable.getPageSize())
+			.fetch();
+
+		CountQuery countQuery = CountQuery.from(queryFactory, memberTeamView, memberTeamView.memberId)
+			.where(searchQueries.readModelConditions(condition));
+		int shape = condition.shape();
+		return PageableExecutionUtils.getPage(content, pageable,
+			() -> countCache.get(condition, () -> searchPageMetrics.countQuery(shape, countQuery::fetch)));
+	}
+
+	/**
+	 * after 다음 행부터 sort 순서로 최대 limit건을 읽는다.
+	 */
+	public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, MemberCursor after, int limit,
+		MemberCursorSort sort) {
+		return searchQuery(condition)
+			.where(seekAfter(after))
+			.orderBy(cursorOrder(sort))
+			.limit(limit)
+			.fetch();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (enabled) {
+			transactionTemplate.executeWithoutResult(status -> rebuild());
+		}
+	}
+
+	/**
+	 * member, team 테이블로부터 읽기 모델 전체를 다시 만든다. 트랜잭션 안에서 호출해야 한다.
+	 * 이벤트 리스너를 거치지 않는 벌크 변경 후나, 동기화가 꺼진 채 쌓인 데이터를 맞출 때 쓴다.
+	 */
+	public int rebuild() {
+		executeNative("delete from member_team");
+		int rows = executeNative("insert into member_team (member_id, username, age, team_id, team_name)"
+			+ " select m.member_id, m.username, m.age, t.team_id, t.name"
+			+ " from member m left outer join team t on m.team_id = t.team_id");
+		log.info("member_team read model rebuilt: {} rows", rows);
+		return rows;
+	}
+
+	/**
+	 * 지정한 회원들의 읽기 모델 행을 member, team 테이블에서 다시 만든다. 지워진 회원은 행도 지워진다.
+	 * 트랜잭션 안에서 호출해야 한다. 청크 단위 벌크 변경이 변경한 회원만 맞출 때 쓴다.
+	 */
+	public int refresh(List<Long> memberIds) {
+		em.createNativeQuery("delete from member_team where member_id in (:memberIds)")
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberTeamView.class)
+			.setParameterList("memberIds", memberIds)
+			.executeUpdate();
+		return em.createNativeQuery("insert into member_team (member_id, username, age, team_id, team_name)"
+				+ " select m.member_id, m.username, m.age, t.team_id, t.name"
+				+ " from member m left outer join team t on m.team_id = t.team_id"
+				+ " where m.member_id in (:memberIds)")
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberTeamView.class)
+			.setParameterList("memberIds", memberIds)
+			.executeUpdate();
+	}
+
+	/**
+	 * 지정한 팀 회원들의 읽기 모델 행을 다시 만든다. 트랜잭션 안에서 호출해야 한다. 동기화를 끄고 적재한 뒤에 쓴다.
+	 */
+	public int refreshTeams(Collection<Long> teamIds) {
+		em.createNativeQuery("delete from member_team where member_id in"
+				+ " (select m.member_id from member m where m.team_id in (:teamIds))")
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberTeamView.class)
+			.setParameterList("teamIds", teamIds)
+			.executeUpdate();
+		return em.createNativeQuery("insert into member_team (member_id, username, age, team_id, team_name)"
+				+ " select m.member_id, m.username, m.age, t.team_id, t.name"
+				+ " from member m join team t on m.team_id = t.team_id"
+				+ " where m.team_id in (:teamIds)")
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberTeamView.class)
+			.setParameterList("teamIds", teamIds)
+			.executeUpdate();
+	}
+
+	private int executeNative(String sql) {
+		return em.createNativeQuery(sql)
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberTeamView.class)
+			.executeUpdate();
+	}
+
+	private JPAQuery<MemberTeamDto> searchQuery(MemberSearchCondition condition) {
+		return queryFactory
+			.select(MEMBER_TEAM_DTO)
+			.from(memberTeamView)
+			.where(searchQueries.readModelConditions(condition));
+	}
+
+	private static BooleanExpression seekAfter(MemberCursor after) {
+		if (after == null) {
+			return null;
+		}
+		if (after.getSort() == MemberCursorSort.AGE) {
+			return memberTeamView.age.gt(after.getAge())
+				.or(memberTeamView.age.eq(after.getAge()).and(memberTeamView.memberId.gt(after.getId())));
+		}
+		return memberTeamView.memberId.gt(after.getId());
+	}
+
+	private static OrderSpecifier<?>[] cursorOrder(MemberCursorSort sort) {
+		if (sort == MemberCursorSort.AGE) {
+			return new OrderSpecifier<?>[] {memberTeamView.age.asc(), memberTeamView.memberId.asc()};
+		}
+		return new OrderSpecifier<?>[] {memberTeamView.memberId.asc()};
+	}
+}
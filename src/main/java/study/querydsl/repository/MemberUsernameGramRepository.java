@@ -0,0 +1,103 @@
+package study.querydsl.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.entity.MemberUsernameGram;
+
+/**
+ * member_username_gram 트라이그램 색인을 member 테이블로부터 다시 만든다.
+ * 평소에는 {@link study.querydsl.event.MemberUsernameGramSynchronizer}가 회원 저장/변경/삭제 때 갱신한다.
+ * member.search.username-grams.enabled=false 이면 색인을 갱신하지도 쓰지도 않고, usernameContains는 like만으로 찾는다.
+ * 시작할 때 색인 전체를 다시 만드는 것은 member.search.username-grams.rebuild-on-startup=true 일 때만 한다.
+ * 색인이 꺼진 채 쌓인 회원이 있으면 켜기 전에 이렇게 한 번 다시 만든다.
+ */
+@Slf4j
+@Repository
+public class MemberUsernameGramRepository {
+	/**
+	 * username의 1번째부터 (길이-2)번째 글자까지 각 위치에서 3글자씩 자른다. username 컬럼 길이(255)까지 지원한다.
+	 */
+	private static final String SELECT_GRAMS = "select distinct substring(m.username, r.x, 3), m.member_id"
+		+ " from member m join system_range(1, 255) r on r.x <= length(m.username) - 2";
+
+	private final EntityManager em;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+	private final boolean rebuildOnStartup;
+
+	public MemberUsernameGramRepository(EntityManager em, PlatformTransactionManager transactionManager,
+		@Value("${member.search.username-grams.enabled:true}") boolean enabled,
+		@Value("${member.search.username-grams.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+		this.em = em;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.enabled = enabled;
+		this.rebuildOnStartup = rebuildOnStartup;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildOnStartup() {
+		if (enabled && rebuildOnStartup) {
+			transactionTemplate.executeWithoutResult(status -> rebuild());
+		}
+	}
+
+	/**
+	 * 색인 전체를 다시 만든다. 트랜잭션 안에서 호출해야 한다.
+	 */
+	public int rebuild() {
+		executeNative("delete from member_username_gram", null);
+		int rows = executeNative("insert into member_username_gram (gram, member_id) " + SELECT_GRAMS, null);
+		log.info("member_username_gram rebuilt: {} rows", rows);
+		return rows;
+	}
+
+	/**
+	 * 지정한 회원들의 색인만 다시 만든다. 지워진 회원은 색인에서도 빠진다. 트랜잭션 안에서 호출해야 한다.
+	 * 이벤트가 발생하지 않는 벌크 변경 후에 쓴다.
+	 */
+	public int refresh(List<Long> memberIds) {
+		executeNative("delete from member_username_gram where member_id in (:memberIds)", memberIds);
+		return executeNative("insert into member_username_gram (gram, member_id) " + SELECT_GRAMS
+			+ " where m.member_id in (:memberIds)", memberIds);
+	}
+
+	/**
+	 * 지정한 팀 회원들의 색인을 다시 만든다. 트랜잭션 안에서 호출해야 한다. 동기화를 끄고 적재한 뒤에 쓴다.
+	 */
+	public int refreshTeams(Collection<Long> teamIds) {
+		executeNative("delete from member_username_gram where member_id in"
+			+ " (select m.member_id from member m where m.team_id in (:teamIds))", "teamIds", teamIds);
+		return executeNative("insert into member_username_gram (gram, member_id) " + SELECT_GRAMS
+			+ " where m.team_id in (:teamIds)", "teamIds", teamIds);
+	}
+
+	private int executeNative(String sql, List<Long> memberIds) {
+		return executeNative(sql, "memberIds", memberIds);
+	}
+
+	private int executeNative(String sql, String parameter, Collection<Long> ids) {
+		NativeQuery<?> query = em.createNativeQuery(sql)
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(MemberUsernameGram.class);
+		if (ids != null) {
+			query.setParameterList(parameter, ids);
+		}
+		return query.executeUpdate();
+	}
+}
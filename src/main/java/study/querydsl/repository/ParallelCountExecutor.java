@@ -0,0 +1,128 @@
+package study.querydsl.repository;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.datasource.ReadYourWrites;
+
+/**
+ * 페이징 count 쿼리를 별도 읽기 전용 트랜잭션(커넥션)에서 content 쿼리와 동시에 실행한다.
+ * 풀과 큐 크기가 제한되어 있고, 큐가 가득 차면 호출한 스레드에서 직접 실행한다.
+ * content 쿼리가 실패하면 호출한 쪽이 future를 취소하고, 실행 중인 count statement도 함께 취소되어 커넥션을 돌려준다.
+ * 취소가 닿지 않는 경우를 위해 count 트랜잭션에는 제한 시간(timeout)을 건다.
+ * count는 호출한 쪽의 read-your-writes 기한을 이어 받아, content와 같은 DataSource(primary 또는 replica)에서 읽는다.
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor {
+	private final boolean enabled;
+	private final EntityManager em;
+	private final ThreadPoolExecutor executor;
+	private final TransactionTemplate readOnlyTransaction;
+
+	public ParallelCountExecutor(EntityManager em, PlatformTransactionManager transactionManager,
+		@Value("${member.search.parallel-count.enabled:false}") boolean enabled,
+		@Value("${member.search.parallel-count.pool-size:4}") int poolSize,
+		@Value("${member.search.parallel-count.queue-capacity:100}") int queueCapacity,
+		@Value("${member.search.parallel-count.timeout:10s}") Duration timeout) {
+		this.enabled = enabled;
+		this.em = em;
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("count-query-"),
+			new ThreadPoolExecutor.CallerRunsPolicy());
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.readOnlyTransaction.setTimeout((int)Math.max(1, timeout.getSeconds()));
+	}
+
+	/**
+	 * 병렬 실행이 꺼져 있거나, 호출한 쪽이 쓰기 트랜잭션 안에 있어 다른 커넥션에서는
+	 * 커밋 전 변경을 볼 수 없는 경우에는 null을 돌려준다. 이때는 기존처럼 순서대로 실행한다.
+	 * 돌려준 future를 cancel하면 아직 시작하지 않은 count는 실행하지 않고, 실행 중인 statement는 취소한다.
+	 */
+	public CompletableFuture<Long> submit(LongSupplier countQuery) {
+		if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+			&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+			return null;
+		}
+		// 풀 스레드에는 요청 컨텍스트가 없으므로 호출한 쪽의 기한을 넘겨 content와 같은 곳으로 라우팅한다
+		long primaryUntil = ReadYourWrites.primaryUntil();
+		CountFuture future = new CountFuture();
+		executor.execute(() -> future.run(primaryUntil, countQuery));
+		return future;
+	}
+
+	public static long join(CompletableFuture<Long> total) {
+		try {
+			return total.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private class CountFuture extends CompletableFuture<Long> {
+		/**
+		 * count를 실행 중인 세션. 실행 중이 아니면 null
+		 */
+		private volatile Session session;
+
+		void run(long primaryUntil, LongSupplier countQuery) {
+			if (isDone()) {
+				return;
+			}
+			try {
+				complete(ReadYourWrites.callWith(primaryUntil, () -> readOnlyTransaction.execute(status -> {
+					session = em.unwrap(Session.class);
+					// cancel()이 세션을 보기 전에 취소되었으면 여기서 멈춘다
+					return isCancelled() ? null : countQuery.getAsLong();
+				})));
+			} catch (RuntimeException e) {
+				completeExceptionally(e);
+			} finally {
+				session = null;
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			Session running = session;
+			if (cancelled && running != null) {
+				try {
+					running.cancelQuery();
+				} catch (RuntimeException e) {
+					// 그 사이 count가 끝나 세션이 닫혔을 수 있다
+					log.debug("count query could not be cancelled", e);
+				}
+			}
+			return cancelled;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package study.querydsl.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 한 번만 실행하고 결과(또는 예외)를 함께 돌려준다.
+ * 먼저 온 호출이 자기 스레드에서 실행하고, 실행 중에 온 호출은 그 결과를 기다린다.
+ * 실행이 끝나면 키를 지우므로 결과를 캐시하지 않는다. 끝난 뒤에 온 호출은 다시 실행한다.
+ */
+public class SingleFlight<K, V> {
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder shared = new LongAdder();
+
+	public V execute(K key, Supplier<V> call) {
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+		if (existing != null) {
+			shared.increment();
+			return join(existing);
+		}
+
+		executions.increment();
+		try {
+			V result = call.get();
+			flight.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, flight);
+		}
+	}
+
+	/**
+	 * 실제로 실행한 호출 수
+	 */
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	/**
+	 * 실행하지 않고 다른 호출의 결과를 받은 호출 수
+	 */
+	public long getShared() {
+		return shared.sum();
+	}
+
+	private static <V> V join(CompletableFuture<V> flight) {
+		try {
+			return flight.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error)e.getCause();
+			}
+			throw e;
+		}
+	}
+}
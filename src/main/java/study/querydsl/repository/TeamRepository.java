@@ -0,0 +1,27 @@
+package study.querydsl.repository;
+
+import static org.hibernate.jpa.QueryHints.*;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import study.querydsl.entity.Team;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+	/**
+	 * 팀 이름 -> id 조회. 결과는 Hibernate 쿼리 캐시("team-by-name" 영역)에 저장되고,
+	 * team 테이블이 변경되면 Hibernate가 자동으로 무효화한다.
+	 */
+	@QueryHints({
+		@QueryHint(name = HINT_CACHEABLE, value = "true"),
+		@QueryHint(name = HINT_CACHE_REGION, value = "team-by-name")
+	})
+	@Query("select t.id from Team t where t.name = :name")
+	List<Long> findIdsByName(@Param("name") String name);
+}
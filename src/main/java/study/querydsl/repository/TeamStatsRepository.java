@@ -0,0 +1,114 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QTeam.*;
+import static study.querydsl.entity.QTeamStats.*;
+
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.QTeamStatsDto;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.TeamStats;
+
+/**
+ * team_stats 롤업 조회와 재집계. 조회는 팀 수만큼의 행만 읽고 member를 집계하지 않는다.
+ * 평소에는 {@link study.querydsl.event.TeamStatsSynchronizer}가 회원 변경마다 증분으로 갱신하고,
+ * 이벤트가 없는 변경(JPQL 벌크, 다른 애플리케이션의 SQL)으로 생긴 오차는 시작할 때와 필요할 때 호출하는 reconcile이 바로잡는다.
+ */
+@Slf4j
+@Repository
+public class TeamStatsRepository {
+	private static final String AGGREGATE = "select t.team_id, count(m.member_id) member_count,"
+		+ " coalesce(sum(m.age), 0) age_sum, min(m.age) age_min, max(m.age) age_max"
+		+ " from team t left outer join member m on m.team_id = t.team_id";
+	private static final String MERGE = "merge into team_stats (team_id, member_count, age_sum, age_min, age_max)"
+		+ " key (team_id) ";
+	private static final String COUNT_DRIFT = "select count(*) from (" + AGGREGATE + " group by t.team_id) a"
+		+ " left outer join team_stats s on s.team_id = a.team_id"
+		+ " where s.team_id is null or s.member_count <> a.member_count or s.age_sum <> a.age_sum"
+		+ " or s.age_min is distinct from a.age_min or s.age_max is distinct from a.age_max";
+
+	private final EntityManager em;
+	private final JPAQueryFactory queryFactory;
+	private final TransactionTemplate transactionTemplate;
+
+	public TeamStatsRepository(EntityManager em, PlatformTransactionManager transactionManager) {
+		this.em = em;
+		this.queryFactory = new JPAQueryFactory(em);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Transactional(readOnly = true)
+	public List<TeamStatsDto> findAll() {
+		return queryFactory
+			.select(new QTeamStatsDto(
+				teamStats.teamId,
+				team.name,
+				teamStats.memberCount,
+				teamStats.ageSum,
+				teamStats.ageMin,
+				teamStats.ageMax))
+			.from(teamStats)
+			.join(team).on(team.id.eq(teamStats.teamId))
+			.orderBy(team.name.asc(), teamStats.teamId.asc())
+			.fetch();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void reconcileOnStartup() {
+		transactionTemplate.executeWithoutResult(status -> reconcile());
+	}
+
+	/**
+	 * member 전체를 다시 집계해 롤업을 덮어쓰고, 맞지 않던 팀 수를 돌려준다. 트랜잭션 안에서 호출해야 한다.
+	 * 먼저 롤업 행을 모두 잠가, 이미 증분을 반영한 트랜잭션은 커밋된 뒤에 집계하고
+	 * 아직 반영하지 않은 트랜잭션은 덮어쓴 뒤에 증분을 더하게 한다. 그래서 동시 증분을 덮어써 잃지 않는다.
+	 * 잠그는 동안 회원 변경의 커밋이 기다리므로 시작할 때와 오차를 확인했을 때만 호출한다.
+	 */
+	public long reconcile() {
+		em.createNativeQuery("select team_id from team_stats for update").getResultList();
+		long drifted = ((Number)em.createNativeQuery(COUNT_DRIFT).getSingleResult()).longValue();
+		executeNative(MERGE + AGGREGATE + " group by t.team_id", null);
+		executeNative("delete from team_stats s where not exists (select 1 from team t where t.team_id = s.team_id)",
+			null);
+		if (drifted > 0) {
+			log.warn("team_stats reconciled: {} teams drifted", drifted);
+		} else {
+			log.debug("team_stats reconciled: no drift");
+		}
+		return drifted;
+	}
+
+	/**
+	 * 지정한 팀들만 다시 집계한다. 트랜잭션 안에서 호출해야 한다. 이벤트가 발생하지 않는 벌크 변경 후에 쓴다.
+	 */
+	public int refresh(Collection<Long> teamIds) {
+		if (teamIds.isEmpty()) {
+			return 0;
+		}
+		return executeNative(MERGE + AGGREGATE + " where t.team_id in (:teamIds) group by t.team_id", teamIds);
+	}
+
+	private int executeNative(String sql, Collection<Long> teamIds) {
+		NativeQuery<?> query = em.createNativeQuery(sql)
+			.unwrap(NativeQuery.class)
+			.addSynchronizedEntityClass(TeamStats.class);
+		if (teamIds != null) {
+			query.setParameterList("teamIds", teamIds);
+		}
+		return query.executeUpdate();
+	}
+}
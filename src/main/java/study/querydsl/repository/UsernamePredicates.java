@@ -0,0 +1,93 @@
+package study.querydsl.repository;
+
+import static org.springframework.util.StringUtils.*;
+import static study.querydsl.entity.QMemberUsernameGram.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPAExpressions;
+
+/**
+ * username 접두어, 부분 문자열 조건. member와 member_team 읽기 모델이 같이 쓴다.
+ * like 패턴의 %, _ 는 이스케이프하므로 사용자가 입력한 글자 그대로 찾는다.
+ */
+final class UsernamePredicates {
+	static final int GRAM_LENGTH = 3;
+	private static final char ESCAPE = '!';
+
+	private UsernamePredicates() {
+	}
+
+	/**
+	 * username like 'prefix%'. username 인덱스를 범위로 읽을 수 있다.
+	 */
+	static BooleanExpression startsWith(StringPath username, String prefix) {
+		return hasText(prefix) ? username.like(prefixPattern(prefix), ESCAPE) : null;
+	}
+
+	/**
+	 * 검색어의 트라이그램을 모두 가진 회원만 후보로 고른 뒤 like로 실제로 포함하는지 확인한다.
+	 * 트라이그램 조각을 모두 가져도 순서가 다를 수 있으므로 like 확인은 빼면 안 된다.
+	 * 3글자보다 짧은 검색어나 트라이그램 색인이 꺼져 있으면 like '%part%'만 쓴다.
+	 * @param gramsEnabled {@link MemberUsernameGramRepository#isEnabled()}
+	 */
+	static BooleanExpression contains(NumberPath<Long> memberId, StringPath username, String part,
+		boolean gramsEnabled) {
+		if (!hasText(part)) {
+			return null;
+		}
+		BooleanExpression like = username.like(containsPattern(part), ESCAPE);
+		if (!usesGrams(part, gramsEnabled)) {
+			return like;
+		}
+		List<String> grams = grams(part);
+		return memberId.in(JPAExpressions
+				.select(memberUsernameGram.memberId)
+				.from(memberUsernameGram)
+				.where(memberUsernameGram.gram.in(grams))
+				.groupBy(memberUsernameGram.memberId)
+				.having(memberUsernameGram.gram.countDistinct().eq((long)grams.size())))
+			.and(like);
+	}
+
+	static boolean usesGrams(String part, boolean gramsEnabled) {
+		return gramsEnabled && part.length() >= GRAM_LENGTH;
+	}
+
+	/**
+	 * 중복을 뺀 트라이그램. SQL 쪽 생성({@link MemberUsernameGramRepository})과 같은 규칙으로 자른다.
+	 */
+	static List<String> grams(String value) {
+		Set<String> grams = new LinkedHashSet<>();
+		for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM_LENGTH));
+		}
+		return new ArrayList<>(grams);
+	}
+
+	static String prefixPattern(String prefix) {
+		return escape(prefix) + "%";
+	}
+
+	static String containsPattern(String part) {
+		return "%" + escape(part) + "%";
+	}
+
+	private static String escape(String value) {
+		StringBuilder escaped = new StringBuilder(value.length() + 4);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '%' || c == '_' || c == ESCAPE) {
+				escaped.append(ESCAPE);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+}
@@ -0,0 +1,214 @@
+package study.querydsl.search;
+
+import static org.springframework.util.StringUtils.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 회원을 컬럼별 배열로 보관하는 불변 스냅샷. 위치(position)는 member id 오름차순이다.
+ * <ul>
+ *     <li>팀: 사전 코드별 위치 목록(오름차순 int[]). 팀마다 그 팀 회원 수만큼만 차지한다.</li>
+ *     <li>나이: 나이순으로 정렬한 int[]와 같은 순서의 위치 배열. 범위 조건은 이진 탐색으로 구간을 찾는다.</li>
+ *     <li>username: 이름별 위치 목록</li>
+ * </ul>
+ */
+final class ColumnarSnapshot {
+	private static final int[] NO_POSITIONS = new int[0];
+
+	final int size;
+	final long[] memberIds;
+	final String[] usernames;
+	final int[] ages;
+	final int[] teamCodes;
+	private final int[] sortedAges;
+	private final int[] agePositions;
+	private final int[][] teamPostings;
+	private final Map<String, int[]> usernamePostings;
+
+	private ColumnarSnapshot(List<MemberRow> rows, TeamDictionary teams) {
+		size = rows.size();
+		memberIds = new long[size];
+		usernames = new String[size];
+		ages = new int[size];
+		teamCodes = new int[size];
+		PositionList[] teamPositions = new PositionList[teams.size()];
+		Map<String, PositionList> usernamePositions = new HashMap<>(size * 2);
+		long[] ageKeys = new long[size];
+		for (int position = 0; position < size; position++) {
+			MemberRow row = rows.get(position);
+			memberIds[position] = row.getMemberId();
+			usernames[position] = row.getUsername();
+			ages[position] = row.getAge();
+			int code = teams.code(row.getTeamId());
+			teamCodes[position] = code;
+			if (code != TeamDictionary.NO_TEAM) {
+				if (teamPositions[code] == null) {
+					teamPositions[code] = new PositionList();
+				}
+				teamPositions[code].add(position);
+			}
+			if (row.getUsername() != null) {
+				usernamePositions.computeIfAbsent(row.getUsername(), username -> new PositionList()).add(position);
+			}
+			// 나이를 상위 32비트, 위치를 하위 32비트에 담아 한 번의 정렬로 (나이, 위치) 순서를 만든다
+			ageKeys[position] = ((long)row.getAge() << 32) | position;
+		}
+		// 위치를 오름차순으로 넣었으므로 목록은 이미 정렬되어 있다
+		teamPostings = new int[teamPositions.length][];
+		for (int code = 0; code < teamPositions.length; code++) {
+			teamPostings[code] = teamPositions[code] != null ? teamPositions[code].toArray() : NO_POSITIONS;
+		}
+		usernamePostings = new HashMap<>(usernamePositions.size() * 2);
+		for (Map.Entry<String, PositionList> positions : usernamePositions.entrySet()) {
+			usernamePostings.put(positions.getKey(), positions.getValue().toArray());
+		}
+
+		Arrays.sort(ageKeys);
+		sortedAges = new int[size];
+		agePositions = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedAges[i] = (int)(ageKeys[i] >> 32);
+			agePositions[i] = (int)ageKeys[i];
+		}
+	}
+
+	/**
+	 * @param rows member id 오름차순으로 정렬된 회원. 팀은 모두 teams에 있어야 한다.
+	 */
+	static ColumnarSnapshot build(List<MemberRow> rows, TeamDictionary teams) {
+		return new ColumnarSnapshot(rows, teams);
+	}
+
+	int position(long memberId) {
+		return Arrays.binarySearch(memberIds, memberId);
+	}
+
+	MemberRow row(int position, TeamDictionary teams) {
+		Long teamId = teams.teamId(teamCodes[position]);
+		return new MemberRow(memberIds[position], usernames[position], ages[position], teamId);
+	}
+
+	/**
+	 * 조건에 맞는 위치. 가장 좁은 posting부터 시작하고, 이미 후보가 있으면 나이는 컬럼 값으로 거른다.
+	 * @param teams 스냅샷 이후 이름이 바뀌었을 수 있으므로 최신 사전으로 팀 이름을 찾는다
+	 */
+	BitSet matches(MemberSearchCondition condition, TeamDictionary teams) {
+		BitSet result = null;
+		if (hasText(condition.getUsername())) {
+			result = new BitSet(size);
+			for (int position : usernamePostings.getOrDefault(condition.getUsername(), NO_POSITIONS)) {
+				result.set(position);
+			}
+		}
+		if (hasText(condition.getTeamName())) {
+			BitSet teamMatches = new BitSet(size);
+			for (int code : teams.codes(condition.getTeamName())) {
+				if (code < teamPostings.length) {
+					for (int position : teamPostings[code]) {
+						teamMatches.set(position);
+					}
+				}
+			}
+			if (result == null) {
+				result = teamMatches;
+			} else {
+				result.and(teamMatches);
+			}
+		}
+
+		Integer ageGoe = condition.getAgeGoe();
+		Integer ageLoe = condition.getAgeLoe();
+		if (ageGoe != null || ageLoe != null) {
+			int min = ageGoe != null ? ageGoe : Integer.MIN_VALUE;
+			int max = ageLoe != null ? ageLoe : Integer.MAX_VALUE;
+			if (result == null) {
+				result = new BitSet(size);
+				if (min <= max) {
+					int from = lowerBound(min);
+					int to = max == Integer.MAX_VALUE ? size : lowerBound(max + 1);
+					for (int i = from; i < to; i++) {
+						result.set(agePositions[i]);
+					}
+				}
+			} else {
+				for (int position = result.nextSetBit(0); position >= 0; position = result.nextSetBit(position + 1)) {
+					if (ages[position] < min || ages[position] > max) {
+						result.clear(position);
+					}
+				}
+			}
+		}
+
+		if (hasText(condition.getUsernameStartsWith()) || hasText(condition.getUsernameContains())) {
+			if (result == null) {
+				result = new BitSet(size);
+				result.set(0, size);
+			}
+			for (int position = result.nextSetBit(0); position >= 0; position = result.nextSetBit(position + 1)) {
+				if (!usernameMatches(usernames[position], condition)) {
+					result.clear(position);
+				}
+			}
+		}
+
+		if (result == null) {
+			result = new BitSet(size);
+			result.set(0, size);
+		}
+		return result;
+	}
+
+	/**
+	 * 접두어, 부분 문자열 조건. 컬럼 값을 직접 비교한다.
+	 */
+	static boolean usernameMatches(String username, MemberSearchCondition condition) {
+		String prefix = condition.getUsernameStartsWith();
+		if (hasText(prefix) && (username == null || !username.startsWith(prefix))) {
+			return false;
+		}
+		String part = condition.getUsernameContains();
+		return !hasText(part) || (username != null && username.contains(part));
+	}
+
+	/**
+	 * sortedAges에서 age 이상인 첫 인덱스
+	 */
+	private int lowerBound(int age) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedAges[mid] < age) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 스냅샷을 만드는 동안 위치를 모으는 목록. 가득 차면 두 배로 늘려, 같은 값이 많아도 전체 비용이 위치 수에 비례한다.
+	 */
+	private static final class PositionList {
+		private int[] positions = new int[1];
+		private int length;
+
+		void add(int position) {
+			if (length == positions.length) {
+				positions = Arrays.copyOf(positions, length * 2);
+			}
+			positions[length++] = position;
+		}
+
+		int[] toArray() {
+			return length == positions.length ? positions : Arrays.copyOf(positions, length);
+		}
+	}
+}
@@ -0,0 +1,521 @@
+package study.querydsl.search;
+
+import static org.springframework.util.StringUtils.*;
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * SQL 없이 MemberSearchCondition을 처리하는 인메모리 컬럼 인덱스. member.search.in-memory.enabled=true 일 때만 적재한다.
+ * 시작할 때 DB에서 불변 스냅샷을 만들고, 이후 커밋된 변경은 추가 전용 delta 로그에 쌓았다가 일정 건수를 넘으면 스냅샷에 합친다.
+ * 합치기(compaction)는 별도 스레드에서 하므로 커밋하는 스레드는 기다리지 않는다. 합치는 동안 들어온 변경은
+ * 새 스냅샷 위에 다시 적용한 뒤 한 번에 교체한다.
+ * 검색은 volatile로 공개된 상태 하나만 읽으므로 잠금이 없다.
+ */
+@Slf4j
+@Component
+public class MemberColumnarIndex {
+	private static final Comparator<MemberRow> BY_MEMBER_ID = Comparator.comparingLong(MemberRow::getMemberId);
+	/**
+	 * 작은 스냅샷에서 변경마다 합치지 않도록 하는 하한
+	 */
+	private static final int MIN_COMPACT_DELTA = 64;
+
+	private final boolean enabled;
+	private final int maxDelta;
+	private final int loadFetchSize;
+	private final JPAQueryFactory queryFactory;
+	private final TransactionTemplate readOnlyTransaction;
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor(compactorThreadFactory());
+
+	private volatile State state;
+	/**
+	 * 적재 중에 커밋된 변경. 적재가 끝나면 새 스냅샷 위에 다시 적용한다. this로 보호한다.
+	 */
+	private List<MemberIndexChanges> changesDuringLoad;
+	/**
+	 * 합치는 중인 기준 상태. 없으면 null. this로 보호한다.
+	 */
+	private State compacting;
+	/**
+	 * compacting 이후 커밋된 변경. 합친 스냅샷 위에 다시 적용한다. this로 보호한다.
+	 */
+	private List<MemberIndexChanges> changesDuringCompaction;
+	private CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+
+	public MemberColumnarIndex(EntityManager em, PlatformTransactionManager transactionManager,
+		@Value("${member.search.in-memory.enabled:false}") boolean enabled,
+		@Value("${member.search.in-memory.max-delta:10000}") int maxDelta,
+		@Value("${member.search.in-memory.load-fetch-size:1000}") int loadFetchSize) {
+		this.enabled = enabled;
+		this.maxDelta = maxDelta;
+		this.loadFetchSize = loadFetchSize;
+		this.queryFactory = new JPAQueryFactory(em);
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public boolean isReady() {
+		return state != null;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadOnStartup() {
+		if (enabled) {
+			reload();
+		}
+	}
+
+	@PreDestroy
+	void shutdown() {
+		compactor.shutdownNow();
+	}
+
+	/**
+	 * DB에서 전체를 다시 읽어 스냅샷을 만든다. 이벤트를 거치지 않는 벌크 변경 후에도 호출한다.
+	 */
+	public void reload() {
+		synchronized (this) {
+			changesDuringLoad = new ArrayList<>();
+		}
+		long start = System.nanoTime();
+		State loaded = readOnlyTransaction.execute(status -> load());
+		synchronized (this) {
+			for (MemberIndexChanges changes : changesDuringLoad) {
+				loaded = loaded.apply(changes);
+			}
+			changesDuringLoad = null;
+			// 진행 중인 합치기는 이전 상태 기준이므로 결과를 버린다
+			compacting = null;
+			changesDuringCompaction = null;
+			state = loaded;
+			compactIfNeeded();
+		}
+		log.info("member columnar index loaded: {} members, {} teams in {} ms", loaded.snapshot.size,
+			loaded.teams.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	public synchronized void apply(MemberIndexChanges changes) {
+		if (changesDuringLoad != null) {
+			changesDuringLoad.add(changes);
+		}
+		if (changesDuringCompaction != null) {
+			changesDuringCompaction.add(changes);
+		}
+		if (state != null) {
+			state = state.apply(changes);
+			compactIfNeeded();
+		}
+	}
+
+	/**
+	 * member id 오름차순 페이지
+	 */
+	public Page<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+		State current = state;
+		if (current == null) {
+			throw new IllegalStateException("member columnar index is not loaded");
+		}
+		return current.search(condition, pageable);
+	}
+
+	/**
+	 * 진행 중인 합치기가 모두 끝날 때까지 기다린다. 테스트용
+	 */
+	void awaitCompaction() {
+		while (true) {
+			CompletableFuture<Void> current;
+			synchronized (this) {
+				if (compacting == null) {
+					return;
+				}
+				current = compaction;
+			}
+			current.join();
+		}
+	}
+
+	int deltaSize() {
+		State current = state;
+		return current != null ? current.deltaLength : 0;
+	}
+
+	/**
+	 * this를 잡고 호출한다
+	 */
+	private void compactIfNeeded() {
+		if (compacting != null || !state.needsCompaction(maxDelta)) {
+			return;
+		}
+		State base = state;
+		compacting = base;
+		changesDuringCompaction = new ArrayList<>();
+		compaction = CompletableFuture.supplyAsync(base::compact, compactor)
+			.thenAccept(compacted -> swap(base, compacted))
+			.exceptionally(e -> {
+				log.warn("member columnar index compaction failed", e);
+				synchronized (this) {
+					if (compacting == base) {
+						compacting = null;
+						changesDuringCompaction = null;
+					}
+				}
+				return null;
+			});
+	}
+
+	private synchronized void swap(State base, State compacted) {
+		if (compacting != base) {
+			return;
+		}
+		State swapped = compacted;
+		for (MemberIndexChanges changes : changesDuringCompaction) {
+			swapped = swapped.apply(changes);
+		}
+		compacting = null;
+		changesDuringCompaction = null;
+		state = swapped;
+		compactIfNeeded();
+	}
+
+	private static ThreadFactory compactorThreadFactory() {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-columnar-compact-");
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	private State load() {
+		TeamDictionary teams = TeamDictionary.empty();
+		for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+			teams = teams.with(row.get(team.id), row.get(team.name));
+		}
+
+		List<MemberRow> rows = new ArrayList<>();
+		try (Stream<Tuple> stream = queryFactory
+			.select(member.id, member.username, member.age, member.team.id)
+			.from(member)
+			.orderBy(member.id.asc())
+			.setHint(QueryHints.HINT_FETCH_SIZE, loadFetchSize)
+			.setHint(QueryHints.HINT_READONLY, true)
+			.stream()) {
+			stream.forEach(row -> rows.add(new MemberRow(row.get(member.id), row.get(member.username),
+				row.get(member.age), row.get(member.team.id))));
+		}
+		return new State(ColumnarSnapshot.build(rows, teams), teams);
+	}
+
+	private static final class State {
+		final ColumnarSnapshot snapshot;
+		/**
+		 * 스냅샷 이후 추가된 팀과 바뀐 이름까지 반영된 사전. 기존 코드는 스냅샷과 같다.
+		 */
+		final TeamDictionary teams;
+		/**
+		 * 스냅샷 이후 커밋된 회원 변경. 이 상태는 앞의 deltaLength개만 본다.
+		 */
+		final DeltaLog log;
+		final DeltaEntry[] delta;
+		final int deltaLength;
+
+		State(ColumnarSnapshot snapshot, TeamDictionary teams) {
+			this(snapshot, teams, new DeltaLog(), DeltaLog.NO_ENTRIES, 0);
+		}
+
+		private State(ColumnarSnapshot snapshot, TeamDictionary teams, DeltaLog log, DeltaEntry[] delta,
+			int deltaLength) {
+			this.snapshot = snapshot;
+			this.teams = teams;
+			this.log = log;
+			this.delta = delta;
+			this.deltaLength = deltaLength;
+		}
+
+		/**
+		 * 변경을 로그 끝에 덧붙인 새 상태. 비용은 변경 건수에만 비례하고 delta나 스냅샷 크기와는 관계없다.
+		 */
+		State apply(MemberIndexChanges changes) {
+			TeamDictionary newTeams = teams;
+			for (Map.Entry<Long, String> changed : changes.getTeams().entrySet()) {
+				newTeams = changed.getValue() != null
+					? newTeams.with(changed.getKey(), changed.getValue())
+					: newTeams.without(changed.getKey());
+			}
+			// 항상 최신 상태에 적용하므로 로그를 이어 쓴다. 그렇지 않으면 이 상태가 보는 부분만 복사해 갈라진다
+			DeltaLog newLog = log.length() == deltaLength ? log : DeltaLog.fork(delta, deltaLength);
+			for (Map.Entry<Long, MemberRow> changed : changes.getMembers().entrySet()) {
+				MemberRow row = changed.getValue();
+				boolean unknownTeam = row != null && row.getTeamId() != null
+					&& newTeams.code(row.getTeamId()) == TeamDictionary.NO_TEAM;
+				if (unknownTeam) {
+					// 이름은 팀 이벤트가 오면 채워진다
+					newTeams = newTeams.with(row.getTeamId(), null);
+				}
+				int position = snapshot.position(changed.getKey());
+				newLog.append(changed.getKey(), row, position >= 0 ? position : -1);
+			}
+			return new State(snapshot, newTeams, newLog, newLog.entries(), newLog.length());
+		}
+
+		/**
+		 * delta가 maxDelta나 스냅샷의 1/64 중 작은 쪽을 넘으면 합친다(하한 MIN_COMPACT_DELTA).
+		 * 검색마다 delta 전체를 훑으므로 delta를 작게 유지하는 편이 낫고, 합치기는 별도 스레드에서 하므로
+		 * 큰 스냅샷에서 자주 합쳐도 커밋하는 스레드나 검색은 기다리지 않는다.
+		 * 같은 회원이 여러 번 바뀌면 바뀐 횟수만큼 센다.
+		 */
+		boolean needsCompaction(int maxDelta) {
+			return deltaLength > Math.min(maxDelta, Math.max(snapshot.size / 64, MIN_COMPACT_DELTA));
+		}
+
+		State compact() {
+			BitSet shadowed = new BitSet(snapshot.size);
+			List<MemberRow> changedRows = new ArrayList<>();
+			forEachLatest(entry -> {
+				if (entry.position >= 0) {
+					shadowed.set(entry.position);
+				}
+				if (entry.row != null) {
+					changedRows.add(entry.row);
+				}
+			});
+			List<MemberRow> rows = new ArrayList<>(snapshot.size + changedRows.size());
+			for (int position = 0; position < snapshot.size; position++) {
+				if (!shadowed.get(position)) {
+					rows.add(snapshot.row(position, teams));
+				}
+			}
+			rows.addAll(changedRows);
+			rows.sort(BY_MEMBER_ID);
+			return new State(ColumnarSnapshot.build(rows, teams), teams);
+		}
+
+		Page<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+			BitSet matches = snapshot.matches(condition, teams);
+			List<MemberRow> deltaMatches = new ArrayList<>();
+			forEachLatest(entry -> {
+				if (entry.position >= 0) {
+					matches.clear(entry.position);
+				}
+				if (entry.row != null && matches(entry.row, condition)) {
+					deltaMatches.add(entry.row);
+				}
+			});
+			deltaMatches.sort(BY_MEMBER_ID);
+			long total = matches.cardinality() + deltaMatches.size();
+
+			long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+			int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+			List<MemberTeamDto> content = new ArrayList<>((int)Math.min(limit, Math.max(total - offset, 0)));
+			int deltaIndex = 0;
+			int position;
+			if (offset == 0) {
+				position = matches.nextSetBit(0);
+			} else if (offset >= total) {
+				position = -1;
+				deltaIndex = deltaMatches.size();
+			} else {
+				// 스냅샷 위치와 delta 모두 member id 순이다. offset 안에 드는 delta 행 수를 세고,
+				// 나머지는 스냅샷 일치 위치를 워드 단위로 세어 한 번에 건너뛴다
+				long[] words = matches.toLongArray();
+				int word = 0;
+				long rank = 0;
+				while (deltaIndex < deltaMatches.size()) {
+					int found = snapshot.position(deltaMatches.get(deltaIndex).getMemberId());
+					int before = found >= 0 ? found : -(found + 1);
+					while (word < words.length && (long)(word + 1) * Long.SIZE <= before) {
+						rank += Long.bitCount(words[word++]);
+					}
+					long snapshotBefore = rank;
+					if (word < words.length && before % Long.SIZE != 0) {
+						snapshotBefore += Long.bitCount(words[word] & ((1L << (before % Long.SIZE)) - 1));
+					}
+					if (snapshotBefore + deltaIndex >= offset) {
+						break;
+					}
+					deltaIndex++;
+				}
+				position = nthSetBit(words, offset - deltaIndex);
+			}
+			while (content.size() < limit) {
+				boolean fromSnapshot;
+				if (position >= 0 && deltaIndex < deltaMatches.size()) {
+					fromSnapshot = snapshot.memberIds[position] < deltaMatches.get(deltaIndex).getMemberId();
+				} else if (position >= 0 || deltaIndex < deltaMatches.size()) {
+					fromSnapshot = position >= 0;
+				} else {
+					break;
+				}
+				if (fromSnapshot) {
+					int code = snapshot.teamCodes[position];
+					content.add(new MemberTeamDto(snapshot.memberIds[position], snapshot.usernames[position],
+						snapshot.ages[position], teams.teamId(code), teams.name(code)));
+					position = matches.nextSetBit(position + 1);
+				} else {
+					MemberRow row = deltaMatches.get(deltaIndex);
+					int code = teams.code(row.getTeamId());
+					content.add(new MemberTeamDto(row.getMemberId(), row.getUsername(), row.getAge(),
+						row.getTeamId(), teams.name(code)));
+					deltaIndex++;
+				}
+			}
+			return new PageImpl<>(content, pageable, total);
+		}
+
+		/**
+		 * 회원별 마지막 변경만 뒤에서부터 넘긴다
+		 */
+		private void forEachLatest(Consumer<DeltaEntry> action) {
+			BitSet superseded = new BitSet(deltaLength);
+			for (int i = deltaLength - 1; i >= 0; i--) {
+				DeltaEntry entry = delta[i];
+				// 가려진 항목의 이전 항목도 가려지도록 먼저 표시한다
+				if (entry.previous >= 0) {
+					superseded.set(entry.previous);
+				}
+				if (!superseded.get(i)) {
+					action.accept(entry);
+				}
+			}
+		}
+
+		/**
+		 * n번째(0부터) 켜진 비트의 위치. 없으면 -1
+		 */
+		private static int nthSetBit(long[] words, long n) {
+			long remaining = n;
+			for (int i = 0; i < words.length; i++) {
+				int count = Long.bitCount(words[i]);
+				if (remaining < count) {
+					long word = words[i];
+					for (long skip = 0; skip < remaining; skip++) {
+						word &= word - 1;
+					}
+					return i * Long.SIZE + Long.numberOfTrailingZeros(word);
+				}
+				remaining -= count;
+			}
+			return -1;
+		}
+
+		private boolean matches(MemberRow row, MemberSearchCondition condition) {
+			if (hasText(condition.getUsername()) && !condition.getUsername().equals(row.getUsername())) {
+				return false;
+			}
+			if (!ColumnarSnapshot.usernameMatches(row.getUsername(), condition)) {
+				return false;
+			}
+			if (hasText(condition.getTeamName())
+				&& !Objects.equals(condition.getTeamName(), teams.name(teams.code(row.getTeamId())))) {
+				return false;
+			}
+			if (condition.getAgeGoe() != null && row.getAge() < condition.getAgeGoe()) {
+				return false;
+			}
+			return condition.getAgeLoe() == null || row.getAge() <= condition.getAgeLoe();
+		}
+	}
+
+	/**
+	 * 스냅샷 이후 커밋된 회원 변경을 커밋 순서로 쌓는 추가 전용 로그.
+	 * 이미 공개된 구간은 바꾸지 않고 끝에만 덧붙이므로 이전 State로 검색 중인 스레드와 함께 써도 안전하다.
+	 * 덧붙이기는 MemberColumnarIndex의 잠금 안에서만 하고, 덧붙인 항목은 새 State를 volatile로 공개할 때 보인다.
+	 */
+	private static final class DeltaLog {
+		static final DeltaEntry[] NO_ENTRIES = new DeltaEntry[0];
+
+		private DeltaEntry[] entries = NO_ENTRIES;
+		private int length;
+		/**
+		 * member id별 마지막 항목의 인덱스. 덧붙이는 쪽만 쓴다
+		 */
+		private final Map<Long, Integer> latest = new HashMap<>();
+
+		DeltaEntry[] entries() {
+			return entries;
+		}
+
+		int length() {
+			return length;
+		}
+
+		void append(long memberId, MemberRow row, int position) {
+			if (length == entries.length) {
+				// 배열을 늘리면 이전 State는 이전 배열을 그대로 본다
+				entries = Arrays.copyOf(entries, Math.max(16, length * 2));
+			}
+			Integer previous = latest.put(memberId, length);
+			entries[length++] = new DeltaEntry(memberId, row, position, previous != null ? previous : -1);
+		}
+
+		static DeltaLog fork(DeltaEntry[] entries, int length) {
+			DeltaLog forked = new DeltaLog();
+			for (int i = 0; i < length; i++) {
+				DeltaEntry entry = entries[i];
+				forked.append(entry.memberId, entry.row, entry.position);
+			}
+			return forked;
+		}
+	}
+
+	private static final class DeltaEntry {
+		final long memberId;
+		/**
+		 * 변경 후 상태. null이면 삭제
+		 */
+		final MemberRow row;
+		/**
+		 * 이 회원의 스냅샷 위치. 스냅샷에 없으면 -1
+		 */
+		final int position;
+		/**
+		 * 같은 회원의 이전 항목 인덱스. 없으면 -1
+		 */
+		final int previous;
+
+		DeltaEntry(long memberId, MemberRow row, int position, int previous) {
+			this.memberId = memberId;
+			this.row = row;
+			this.position = position;
+			this.previous = previous;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package study.querydsl.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * 한 트랜잭션에서 커밋된 변경. 같은 회원이 여러 번 바뀌면 마지막 상태만 남는다.
+ */
+@Getter
+public class MemberIndexChanges {
+	/**
+	 * team id별 최종 이름. null이면 삭제
+	 */
+	private final Map<Long, String> teams = new LinkedHashMap<>();
+	/**
+	 * member id별 최종 상태. null이면 삭제
+	 */
+	private final Map<Long, MemberRow> members = new LinkedHashMap<>();
+
+	public void putTeam(long teamId, String name) {
+		teams.put(teamId, name);
+	}
+
+	public void removeTeam(long teamId) {
+		teams.put(teamId, null);
+	}
+
+	public void putMember(MemberRow row) {
+		members.put(row.getMemberId(), row);
+	}
+
+	public void removeMember(long memberId) {
+		members.put(memberId, null);
+	}
+
+	public boolean isEmpty() {
+		return teams.isEmpty() && members.isEmpty();
+	}
+}
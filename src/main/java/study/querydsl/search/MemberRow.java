@@ -0,0 +1,21 @@
+package study.querydsl.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 인메모리 인덱스에 들어가는 회원 한 건. 팀 이름은 {@link TeamDictionary}에서 찾는다.
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class MemberRow {
+	private final long memberId;
+	private final String username;
+	private final int age;
+	/**
+	 * 팀이 없으면 null
+	 */
+	private final Long teamId;
+}
@@ -0,0 +1,97 @@
+package study.querydsl.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 팀 id를 0부터 시작하는 코드로 바꾸는 사전. 한 번 부여한 코드는 바뀌지 않으며,
+ * 변경은 새 사전을 만들어 반영하므로 읽는 쪽은 잠금 없이 사용할 수 있다.
+ */
+final class TeamDictionary {
+	static final int NO_TEAM = -1;
+	private static final int[] NO_CODES = new int[0];
+
+	private final long[] idsByCode;
+	private final String[] namesByCode;
+	private final Map<Long, Integer> codesById;
+	private final Map<String, int[]> codesByName;
+
+	private TeamDictionary(long[] idsByCode, String[] namesByCode) {
+		this.idsByCode = idsByCode;
+		this.namesByCode = namesByCode;
+		this.codesById = new HashMap<>(idsByCode.length * 2);
+		this.codesByName = new HashMap<>(idsByCode.length * 2);
+		for (int code = 0; code < idsByCode.length; code++) {
+			codesById.put(idsByCode[code], code);
+			if (namesByCode[code] != null) {
+				int[] codes = codesByName.getOrDefault(namesByCode[code], NO_CODES);
+				int[] appended = Arrays.copyOf(codes, codes.length + 1);
+				appended[codes.length] = code;
+				codesByName.put(namesByCode[code], appended);
+			}
+		}
+	}
+
+	static TeamDictionary empty() {
+		return new TeamDictionary(new long[0], new String[0]);
+	}
+
+	/**
+	 * 팀을 추가하거나 이름을 바꾼 새 사전
+	 */
+	TeamDictionary with(long teamId, String name) {
+		Integer code = codesById.get(teamId);
+		if (code != null) {
+			if (name != null && name.equals(namesByCode[code])) {
+				return this;
+			}
+			String[] names = namesByCode.clone();
+			names[code] = name;
+			return new TeamDictionary(idsByCode, names);
+		}
+		long[] ids = Arrays.copyOf(idsByCode, idsByCode.length + 1);
+		String[] names = Arrays.copyOf(namesByCode, namesByCode.length + 1);
+		ids[idsByCode.length] = teamId;
+		names[idsByCode.length] = name;
+		return new TeamDictionary(ids, names);
+	}
+
+	/**
+	 * 지워진 팀을 뺀 새 사전. 스냅샷이 코드를 그대로 쓰므로 코드는 남기고 이름만 지워 팀 이름 검색에 걸리지 않게 한다.
+	 * 지워진 팀에 남은 회원은 없으므로 코드는 다음 적재 때 사라진다.
+	 */
+	TeamDictionary without(long teamId) {
+		Integer code = codesById.get(teamId);
+		if (code == null || namesByCode[code] == null) {
+			return this;
+		}
+		String[] names = namesByCode.clone();
+		names[code] = null;
+		return new TeamDictionary(idsByCode, names);
+	}
+
+	int size() {
+		return idsByCode.length;
+	}
+
+	int code(Long teamId) {
+		if (teamId == null) {
+			return NO_TEAM;
+		}
+		Integer code = codesById.get(teamId);
+		return code != null ? code : NO_TEAM;
+	}
+
+	int[] codes(String name) {
+		return codesByName.getOrDefault(name, NO_CODES);
+	}
+
+	Long teamId(int code) {
+		return code == NO_TEAM ? null : idsByCode[code];
+	}
+
+	String name(int code) {
+		return code == NO_TEAM ? null : namesByCode[code];
+	}
+}
@@ -0,0 +1,25 @@
+package study.querydsl.seed;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Component
+@ConfigurationProperties(prefix = "member.seed")
+@Getter @Setter
+public class MemberSeedProperties {
+	private int members = 100;
+	private int teams = 2;
+	private TeamDistribution distribution = TeamDistribution.ROUND_ROBIN;
+	/**
+	 * 한 트랜잭션에서 저장할 회원 수
+	 */
+	private int chunkSize = 10_000;
+	/**
+	 * flush/clear 주기. hibernate.jdbc.batch_size와 맞춘다.
+	 */
+	private int flushSize = 1000;
+	private long randomSeed = 42;
+}
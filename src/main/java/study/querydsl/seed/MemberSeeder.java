@@ -0,0 +1,142 @@
+package study.querydsl.seed;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.SideTableSync;
+import study.querydsl.repository.MemberDataVersion;
+import study.querydsl.repository.MemberTeamViewRepository;
+import study.querydsl.repository.MemberUsernameGramRepository;
+import study.querydsl.repository.TeamStatsRepository;
+
+/**
+ * 대량의 회원 데이터를 적재한다.
+ * chunk 단위로 커밋하고 flushSize마다 flush/clear 해서 영속성 컨텍스트가 계속 커지지 않게 한다.
+ * 실제 insert 묶음은 hibernate.jdbc.batch_size, order_inserts 설정과 시퀀스 pooled 할당에 맡긴다.
+ * 적재하는 동안은 행마다 문장을 실행하는 member_team, 트라이그램, team_stats 동기화를 끄고({@link SideTableSync}),
+ * 끝난 뒤 적재한 팀 묶음마다 insert ... select 한 번으로 만든다.
+ * 적재가 끝나면 데이터 버전을 올려, 적재 전에 받은 검색 응답의 ETag가 더 이상 맞지 않게 한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberSeeder {
+	/**
+	 * 부수 테이블을 다시 만들 때 한 트랜잭션에서 처리할 팀 수
+	 */
+	private static final int REBUILD_TEAMS = 1000;
+
+	private final EntityManager em;
+	private final TransactionTemplate transactionTemplate;
+	private final MemberSeedProperties properties;
+	private final MemberDataVersion dataVersion;
+	private final TeamStatsRepository teamStats;
+	private final MemberUsernameGramRepository usernameGrams;
+	private final MemberTeamViewRepository readModel;
+
+	public SeedResult seed() {
+		return seed(properties.getMembers(), properties.getTeams(), properties.getDistribution());
+	}
+
+	public SeedResult seed(int memberCount, int teamCount, TeamDistribution distribution) {
+		if (teamCount < 1) {
+			throw new IllegalArgumentException("teamCount must be positive");
+		}
+		long start = System.nanoTime();
+		List<Long> teamIds = SideTableSync.suspend(() -> load(memberCount, teamCount, distribution));
+		rebuildSideTables(teamIds);
+		dataVersion.increment();
+
+		SeedResult result = new SeedResult(memberCount, teamCount, Duration.ofNanos(System.nanoTime() - start));
+		log.info("seeded {} members into {} teams in {} ms ({} rows/sec)", result.getMembers(), result.getTeams(),
+			result.getElapsed().toMillis(), Math.round(result.getRowsPerSecond()));
+		return result;
+	}
+
+	private List<Long> load(int memberCount, int teamCount, TeamDistribution distribution) {
+		List<Long> teamIds = transactionTemplate.execute(status -> persistTeams(teamCount));
+		Random random = new Random(properties.getRandomSeed());
+
+		for (int from = 0; from < memberCount; from += properties.getChunkSize()) {
+			int chunkStart = from;
+			int chunkEnd = Math.min(from + properties.getChunkSize(), memberCount);
+			transactionTemplate.executeWithoutResult(
+				status -> persistMembers(chunkStart, chunkEnd, teamIds, distribution, random));
+			log.debug("seeded {}/{} members", chunkEnd, memberCount);
+		}
+		return teamIds;
+	}
+
+	/**
+	 * 적재한 팀은 모두 새 팀이라 그 팀의 회원이 곧 적재한 회원이다
+	 */
+	private void rebuildSideTables(List<Long> teamIds) {
+		long start = System.nanoTime();
+		for (int from = 0; from < teamIds.size(); from += REBUILD_TEAMS) {
+			List<Long> chunk = teamIds.subList(from, Math.min(from + REBUILD_TEAMS, teamIds.size()));
+			transactionTemplate.executeWithoutResult(status -> {
+				teamStats.refresh(chunk);
+				if (usernameGrams.isEnabled()) {
+					usernameGrams.refreshTeams(chunk);
+				}
+				if (readModel.isEnabled()) {
+					readModel.refreshTeams(chunk);
+				}
+			});
+		}
+		log.info("rebuilt side tables of {} seeded teams in {} ms", teamIds.size(),
+			Duration.ofNanos(System.nanoTime() - start).toMillis());
+	}
+
+	private List<Long> persistTeams(int teamCount) {
+		List<Long> teamIds = new ArrayList<>(teamCount);
+		for (int i = 0; i < teamCount; i++) {
+			Team team = new Team(teamName(i, teamCount));
+			em.persist(team);
+			teamIds.add(team.getId());
+		}
+		return teamIds;
+	}
+
+	private void persistMembers(int from, int to, List<Long> teamIds, TeamDistribution distribution,
+		Random random) {
+		for (int i = from; i < to; i++) {
+			Member member = new Member("member" + i, i % 100);
+			// changeTeam()은 team.members 컬렉션을 초기화하므로 적재 시에는 FK만 연결한다
+			int teamIndex = teamIndex(i, teamIds.size(), distribution, random);
+			member.setTeam(em.getReference(Team.class, teamIds.get(teamIndex)));
+			em.persist(member);
+
+			if ((i - from + 1) % properties.getFlushSize() == 0) {
+				em.flush();
+				em.clear();
+			}
+		}
+	}
+
+	private static int teamIndex(int memberIndex, int teamCount, TeamDistribution distribution, Random random) {
+		switch (distribution) {
+			case UNIFORM:
+				return random.nextInt(teamCount);
+			case SKEWED:
+				return (int)(teamCount * Math.pow(random.nextDouble(), 3));
+			default:
+				return memberIndex % teamCount;
+		}
+	}
+
+	private static String teamName(int index, int teamCount) {
+		return teamCount <= 26 ? "team" + (char)('A' + index) : "team" + index;
+	}
+}
@@ -0,0 +1,17 @@
+package study.querydsl.seed;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+@Data
+public class SeedResult {
+	private final long members;
+	private final int teams;
+	private final Duration elapsed;
+
+	public double getRowsPerSecond() {
+		long millis = Math.max(elapsed.toMillis(), 1);
+		return (members + teams) * 1000.0 / millis;
+	}
+}
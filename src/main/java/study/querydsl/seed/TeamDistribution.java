@@ -0,0 +1,16 @@
+package study.querydsl.seed;
+
+public enum TeamDistribution {
+	/**
+	 * i번째 회원을 i % teams 번째 팀에 배정한다.
+	 */
+	ROUND_ROBIN,
+	/**
+	 * 모든 팀에 같은 확률로 무작위 배정한다.
+	 */
+	UNIFORM,
+	/**
+	 * 앞쪽 팀일수록 회원이 몰리도록 배정한다.
+	 */
+	SKEWED
+}
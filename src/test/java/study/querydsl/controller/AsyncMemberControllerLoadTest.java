@@ -0,0 +1,163 @@
+package study.querydsl.controller;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.seed.MemberSeeder;
+import study.querydsl.seed.TeamDistribution;
+
+/**
+ * 느린 검색이 몰릴 때 동기(/v3)와 비동기(/async/v3) 엔드포인트의 검색 꼬리 지연 비교. ./gradlew loadTest 로 실행한다.
+ * Tomcat 스레드와 쿼리 동시 실행 수를 같게 두고, 동시 검색 수를 늘려 가며 검색 p50/p99와 목표 지연 안에 끝난 수를 로그로 남긴다.
+ * 동기 방식은 밀린 요청이 끝없이 줄을 서서 p99가 동시 요청 수에 비례해 늘지만,
+ * 비동기 방식은 제한 시간(= 목표 지연)을 넘기는 쿼리를 취소하고 503으로 빨리 응답하므로 p99가 목표 근처에 머문다.
+ * 지연 수치는 실행하는 장비에 따라 달라 검증하지 않고, 모든 요청이 200 또는 503으로 답하는지만 확인한다.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+	"decorator.datasource.enabled=false",
+	"spring.jpa.properties.hibernate.generate_statistics=false",
+	"logging.level.org.hibernate.SQL=warn",
+	"server.tomcat.threads.max=8",
+	"spring.datasource.hikari.maximum-pool-size=8",
+	"member.async.pool-size=8",
+	"member.async.queue-capacity=1000",
+	"member.async.timeout=2s"
+})
+class AsyncMemberControllerLoadTest {
+	private static final int MEMBERS = 200_000;
+	private static final int[] CONCURRENCY = {64, 256, 1024};
+	private static final String SEARCH_QUERY = "?ageGoe=10&size=500";
+	/**
+	 * 검색 p99 목표. 비동기 제한 시간과 같다
+	 */
+	private static final long TARGET_P99_MILLIS = 2_000;
+
+	@LocalServerPort
+	int port;
+	@Autowired
+	MemberSeeder memberSeeder;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	public void reportsSearchTailLatency() throws Exception {
+		memberSeeder.seed(MEMBERS, 100, TeamDistribution.UNIFORM);
+		// 워밍업
+		run("/v3/members", CONCURRENCY[0]);
+		run("/async/v3/members", CONCURRENCY[0]);
+
+		log.info(String.format("%-20s %8s %12s %12s %8s %10s", "endpoint", "clients", "search p50", "search p99",
+			"503", "in target"));
+		for (int concurrency : CONCURRENCY) {
+			Result sync = run("/v3/members", concurrency);
+			Result async = run("/async/v3/members", concurrency);
+			print("/v3/members", sync);
+			print("/async/v3/members", async);
+
+			// 동기 방식은 느려질 뿐 거절하지 않고, 비동기 방식은 한도를 넘으면 503으로만 답한다
+			Assertions.assertThat(sync.unavailable.get() + sync.failures.get())
+				.as("sync searches not answered 200 at %d concurrent searches", concurrency)
+				.isZero();
+			Assertions.assertThat(async.failures.get())
+				.as("async searches answered other than 200/503 at %d concurrent searches", concurrency)
+				.isZero();
+		}
+	}
+
+	/**
+	 * 검색 concurrency건을 한꺼번에 보내고 모두 끝날 때까지 기다린다.
+	 */
+	private Result run(String path, int concurrency) {
+		Result result = new Result(concurrency);
+		List<CompletableFuture<?>> searches = new ArrayList<>();
+		for (int i = 0; i < concurrency; i++) {
+			searches.add(timed(path + SEARCH_QUERY, result, i));
+		}
+		CompletableFuture.allOf(searches.toArray(new CompletableFuture[0])).join();
+		return result;
+	}
+
+	private CompletableFuture<?> timed(String pathAndQuery, Result result, int index) {
+		long start = System.nanoTime();
+		return client.sendAsync(request(pathAndQuery), HttpResponse.BodyHandlers.discarding())
+			.thenAccept(response -> {
+				long millis = (System.nanoTime() - start) / 1_000_000;
+				result.searchMillis[index] = millis;
+				if (response.statusCode() == 503) {
+					result.unavailable.incrementAndGet();
+				} else if (response.statusCode() != 200) {
+					result.failures.incrementAndGet();
+				} else if (millis <= TARGET_P99_MILLIS) {
+					result.withinTarget.incrementAndGet();
+				}
+			});
+	}
+
+	private HttpRequest request(String pathAndQuery) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery)).build();
+	}
+
+	private static void print(String endpoint, Result result) {
+		log.info(String.format("%-20s %8d %10dms %10dms %8d %10d", endpoint, result.searchMillis.length,
+			result.searchP50(), result.searchP99(), result.unavailable.get(), result.withinTarget()));
+	}
+
+	private static long percentile(long[] values, double percentile) {
+		if (values.length == 0) {
+			return 0;
+		}
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[(int)Math.max(0, Math.ceil(percentile * sorted.length) - 1)];
+	}
+
+	private static class Result {
+		final long[] searchMillis;
+		/**
+		 * 대기열이 차거나 제한 시간을 넘겨 503으로 끝난 검색 수
+		 */
+		final AtomicInteger unavailable = new AtomicInteger();
+		/**
+		 * 200, 503이 아닌 응답 수
+		 */
+		final AtomicInteger failures = new AtomicInteger();
+		/**
+		 * 목표 지연 안에 200으로 끝난 검색 수
+		 */
+		final AtomicInteger withinTarget = new AtomicInteger();
+
+		Result(int concurrency) {
+			this.searchMillis = new long[concurrency];
+		}
+
+		long searchP50() {
+			return percentile(searchMillis, 0.5);
+		}
+
+		long searchP99() {
+			return percentile(searchMillis, 0.99);
+		}
+
+		int withinTarget() {
+			return withinTarget.get();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package study.querydsl.controller;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchCoalescer;
+
+/**
+ * 비동기 검색은 실행기가 연 읽기 전용 트랜잭션 안에서 실행되므로, 그 안에서도 같은 검색이 합쳐지는지 본다.
+ */
+@SpringBootTest(properties = "member.search.coalescing.enabled=true")
+@AutoConfigureMockMvc
+class AsyncMemberControllerTest {
+	@Autowired
+	MockMvc mockMvc;
+	@Autowired
+	MemberSearchCoalescer coalescer;
+	@MockBean
+	MemberRepository memberRepository;
+
+	@Test
+	public void identicalConcurrentAsyncSearchesRunOneQuery() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(memberRepository.searchPageComplex(any(), any())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return new PageImpl<>(List.of(new MemberTeamDto(1L, "asyncMember", 10, 1L, "asyncTeam")),
+				PageRequest.of(0, 20), 1);
+		});
+		long shared = coalescer.getShared();
+
+		MvcResult first = mockMvc.perform(get("/async/v3/members?teamName=asyncTeam"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		Assertions.assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		MvcResult second = mockMvc.perform(get("/async/v3/members?teamName=asyncTeam"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+		awaitShared(shared + 1);
+		release.countDown();
+
+		for (MvcResult result : new MvcResult[] {first, second}) {
+			mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].username").value("asyncMember"));
+		}
+		verify(memberRepository, times(1)).searchPageComplex(any(), any());
+	}
+
+	private void awaitShared(long shared) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (coalescer.getShared() < shared && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		Assertions.assertThat(coalescer.getShared()).isEqualTo(shared);
+	}
+}
@@ -0,0 +1,249 @@
+package study.querydsl.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.seed.MemberSeeder;
+import study.querydsl.seed.TeamDistribution;
+
+/**
+ * /v1, /v2, /v3 회원 검색을 같은 요청 도착률(open model)로 돌려 처리량과 지연 분포를 비교한다.
+ * ./gradlew memberLoadTest -Ploadtest.rate=300 -Ploadtest.duration=60s 처럼 실행하고,
+ * 결과는 build/loadtest/member-endpoints-*.json 에 HDR 히스토그램(압축, base64)과 함께 남는다.
+ * 지연은 요청을 보내야 했던 시각부터 재므로, 서버가 밀려 요청이 늦게 나간 시간도 지연에 포함된다(coordinated omission 보정).
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"spring.datasource.url=jdbc:h2:mem:memberloadtest;DB_CLOSE_DELAY=-1",
+	"decorator.datasource.enabled=false",
+	"spring.jpa.properties.hibernate.generate_statistics=false",
+	"logging.level.org.hibernate.SQL=warn"
+})
+class MemberEndpointLoadTest {
+	private static final int TEAMS = 100;
+	private static final int PAGES = 5;
+	private static final int PAGE_SIZE = 20;
+
+	@LocalServerPort
+	int port;
+	@Autowired
+	MemberSeeder memberSeeder;
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Value("${loadtest.members:100000}")
+	int members;
+	/**
+	 * 초당 요청 수. 응답을 기다리지 않고 이 간격으로 계속 보낸다
+	 */
+	@Value("${loadtest.rate:200}")
+	int rate;
+	@Value("${loadtest.warmup:10s}")
+	Duration warmup;
+	@Value("${loadtest.duration:30s}")
+	Duration duration;
+	@Value("${loadtest.endpoints:v1,v2,v3}")
+	List<String> endpoints;
+	/**
+	 * 요청 조건 순서를 정하는 난수 시드. 같은 시드면 실행마다 같은 요청을 같은 순서로 보낸다
+	 */
+	@Value("${loadtest.seed:42}")
+	long seed;
+	@Value("${loadtest.output:build/loadtest}")
+	String output;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	public void memberEndpointsUnderOpenModelLoad() throws Exception {
+		Assertions.assertThat(rate).isPositive();
+		memberSeeder.seed(members, TEAMS, TeamDistribution.UNIFORM);
+
+		List<Result> results = new ArrayList<>();
+		for (String endpoint : endpoints) {
+			String path = "/" + endpoint.trim() + "/members";
+			// JIT, 커넥션 풀, 쿼리 캐시 워밍업. 결과는 버린다
+			run(path, warmup);
+			Result result = run(path, duration);
+			log.info(result.summary());
+			results.add(result);
+		}
+		Path report = writeReport(results);
+		log.info("load test report: {}", report.toAbsolutePath());
+
+		for (Result result : results) {
+			Assertions.assertThat(result.errors.get()).as(result.path + " errors").isZero();
+		}
+	}
+
+	/**
+	 * 1/rate 간격으로 요청을 보낸다. 응답이 늦어도 다음 요청은 예정된 시각에 나간다.
+	 */
+	private Result run(String path, Duration length) {
+		Random random = new Random(seed);
+		boolean paged = !path.startsWith("/v1/");
+		Result result = new Result(path);
+		List<CompletableFuture<?>> requests = new ArrayList<>();
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long start = System.nanoTime();
+		long end = start + length.toNanos();
+		for (long intended = start; intended < end; intended += intervalNanos) {
+			long wait = intended - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			requests.add(send(path + "?" + nextQuery(random, paged), intended, result));
+		}
+		CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	private CompletableFuture<?> send(String pathAndQuery, long intended, Result result) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + pathAndQuery))
+			.timeout(Duration.ofSeconds(30))
+			.build();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+			.handle((response, error) -> {
+				result.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+				if (error != null || response.statusCode() != 200) {
+					result.errors.incrementAndGet();
+				}
+				return null;
+			});
+	}
+
+	/**
+	 * MemberSearchCondition 조합 섞기. 시더는 username을 member0.., 나이를 순번 % 100, 팀 이름을 team0..으로 만든다.
+	 * /v2, /v3는 앞쪽 몇 페이지 중 하나를 요청한다.
+	 */
+	private String nextQuery(Random random, boolean paged) {
+		String query;
+		int pick = random.nextInt(10);
+		if (pick < 3) {
+			query = "teamName=team" + random.nextInt(TEAMS);
+		} else if (pick < 6) {
+			int ageGoe = random.nextInt(90);
+			query = "teamName=team" + random.nextInt(TEAMS) + "&ageGoe=" + ageGoe + "&ageLoe=" + (ageGoe + 10);
+		} else if (pick < 8) {
+			int age = random.nextInt(100);
+			query = "ageGoe=" + age + "&ageLoe=" + age;
+		} else if (pick < 9) {
+			query = "username=member" + random.nextInt(members);
+		} else {
+			query = "usernameStartsWith=member" + random.nextInt(Math.max(1, members / 100));
+		}
+		return paged ? query + "&page=" + random.nextInt(PAGES) + "&size=" + PAGE_SIZE : query;
+	}
+
+	private Path writeReport(List<Result> results) throws IOException {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("members", members);
+		report.put("teams", TEAMS);
+		report.put("rate", rate);
+		report.put("warmupMillis", warmup.toMillis());
+		report.put("durationMillis", duration.toMillis());
+		report.put("seed", seed);
+		List<Map<String, Object>> endpointReports = new ArrayList<>();
+		for (Result result : results) {
+			endpointReports.add(result.toReport());
+		}
+		report.put("endpoints", endpointReports);
+
+		Path directory = Paths.get(output);
+		Files.createDirectories(directory);
+		Path file = directory.resolve(
+			"member-endpoints-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+		return file;
+	}
+
+	private static class Result {
+		final String path;
+		/**
+		 * 마이크로초 단위. 크기는 자동으로 늘어난다
+		 */
+		final Histogram latency = new ConcurrentHistogram(3);
+		final AtomicLong errors = new AtomicLong();
+		long elapsedNanos;
+
+		Result(String path) {
+			this.path = path;
+		}
+
+		double throughput() {
+			return latency.getTotalCount() / (elapsedNanos / 1e9);
+		}
+
+		double millisAt(double percentile) {
+			return latency.getValueAtPercentile(percentile) / 1000.0;
+		}
+
+		String summary() {
+			return String.format("%-12s %8.1f req/s  p50 %8.2fms  p99 %8.2fms  p999 %8.2fms  max %8.2fms  errors %d",
+				path, throughput(), millisAt(50), millisAt(99), millisAt(99.9), latency.getMaxValue() / 1000.0,
+				errors.get());
+		}
+
+		Map<String, Object> toReport() {
+			Map<String, Object> latencyMillis = new LinkedHashMap<>();
+			latencyMillis.put("mean", latency.getMean() / 1000.0);
+			latencyMillis.put("p50", millisAt(50));
+			latencyMillis.put("p90", millisAt(90));
+			latencyMillis.put("p99", millisAt(99));
+			latencyMillis.put("p999", millisAt(99.9));
+			latencyMillis.put("max", latency.getMaxValue() / 1000.0);
+
+			Map<String, Object> report = new LinkedHashMap<>();
+			report.put("path", path);
+			report.put("requests", latency.getTotalCount());
+			report.put("errors", errors.get());
+			report.put("throughput", throughput());
+			report.put("latencyMillis", latencyMillis);
+			// HistogramLogProcessor 등 HdrHistogram 도구로 다시 읽어 실행끼리 합치거나 비교할 수 있다 (값 단위: 마이크로초)
+			report.put("histogram", encode(latency));
+			return report;
+		}
+
+		private static String encode(Histogram histogram) {
+			ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+			int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+			return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+		}
+	}
+}
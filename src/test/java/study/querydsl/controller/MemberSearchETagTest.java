@@ -0,0 +1,106 @@
+package study.querydsl.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.StatementCounter;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberSearchETagTest {
+	private static final String SEARCH = "/v3/members?teamName=etagTeam&size=5";
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MockMvc mockMvc;
+
+	private Long memberId;
+	private Long teamId;
+
+	@BeforeEach
+	public void before() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("etagTeam");
+			em.persist(team);
+			Member member = new Member("etagMember", 10, team);
+			em.persist(member);
+			teamId = team.getId();
+			memberId = member.getId();
+		});
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		// 이벤트로 읽기 모델과 롤업도 지워지도록 엔티티로 지운다 (members는 cascade)
+		transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+	}
+
+	@Test
+	public void unchangedDataIsNotModifiedWithoutQuery() throws Exception {
+		String etag = etag(mockMvc.perform(get(SEARCH)).andExpect(status().isOk()).andReturn());
+
+		int statements = StatementCounter.count(() -> perform(SEARCH, etag, 304));
+		Assertions.assertThat(statements).isZero();
+
+		transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId).setAge(11));
+		String changed = etag(perform(SEARCH, etag, 200));
+		Assertions.assertThat(changed).isNotEqualTo(etag);
+	}
+
+	@Test
+	public void etagDependsOnParametersAndRepresentation() throws Exception {
+		String etag = etag(mockMvc.perform(get(SEARCH)).andReturn());
+		String otherPage = etag(mockMvc.perform(get(SEARCH + "&page=1")).andReturn());
+		String smile = etag(mockMvc.perform(get(SEARCH).accept("application/x-jackson-smile")).andReturn());
+
+		Assertions.assertThat(etag).isNotEqualTo(otherPage).isNotEqualTo(smile);
+		perform(SEARCH + "&page=1", etag, 200);
+	}
+
+	@Test
+	public void responsesVaryByRepresentation() throws Exception {
+		MvcResult ok = mockMvc.perform(get(SEARCH)).andExpect(status().isOk()).andReturn();
+		MvcResult notModified = perform(SEARCH, etag(ok), 304);
+
+		for (MvcResult result : new MvcResult[] {ok, notModified}) {
+			Assertions.assertThat(String.join(",", result.getResponse().getHeaders(HttpHeaders.VARY)))
+				.contains(HttpHeaders.ACCEPT)
+				.contains(HttpHeaders.ACCEPT_ENCODING);
+		}
+	}
+
+	private MvcResult perform(String url, String ifNoneMatch, int expectedStatus) {
+		try {
+			return mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+				.andExpect(status().is(expectedStatus))
+				.andReturn();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String etag(MvcResult result) {
+		String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+		Assertions.assertThat(etag).isNotBlank();
+		return etag;
+	}
+}
@@ -0,0 +1,76 @@
+package study.querydsl.controller;
+
+import java.time.Duration;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import study.querydsl.datasource.ReadYourWrites;
+import study.querydsl.datasource.ReplicaDataSourceProperties;
+import study.querydsl.repository.MemberDataVersion;
+
+/**
+ * replica를 쓸 때 복제 지연 안의 응답에는 ETag를 붙이지 않는지 본다. 검색은 하지 않으므로 DB 없이 확인한다.
+ */
+class MemberSearchETagsReplicaTest {
+	private static final long PRIMARY_AFTER_WRITE_MILLIS = 200;
+
+	private final MemberDataVersion dataVersion = new MemberDataVersion();
+	private final MemberSearchETags etags = new MemberSearchETags(dataVersion, replicaEnabled());
+
+	@Test
+	public void replicaReadRightAfterWriteHasNoETag() throws Exception {
+		Thread.sleep(PRIMARY_AFTER_WRITE_MILLIS + 50);
+		String etag = etag(null);
+		Assertions.assertThat(etag).isNotBlank();
+
+		dataVersion.increment();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		Assertions.assertThat(etags.checkNotModified(request(etag, response))).isFalse();
+		Assertions.assertThat(response.getStatus()).isEqualTo(200);
+		Assertions.assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+		Assertions.assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNull();
+
+		Thread.sleep(PRIMARY_AFTER_WRITE_MILLIS + 50);
+		Assertions.assertThat(etag(null)).isNotBlank().isNotEqualTo(etag);
+	}
+
+	@Test
+	public void primaryReadRightAfterWriteKeepsETag() {
+		dataVersion.increment();
+		long primaryUntil = System.currentTimeMillis() + PRIMARY_AFTER_WRITE_MILLIS;
+		String etag = ReadYourWrites.callWith(primaryUntil, () -> etag(null));
+		Assertions.assertThat(etag).isNotBlank();
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		boolean notModified = ReadYourWrites.callWith(primaryUntil,
+			() -> etags.checkNotModified(request(etag, response)));
+		Assertions.assertThat(notModified).isTrue();
+	}
+
+	private String etag(String ifNoneMatch) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		etags.checkNotModified(request(ifNoneMatch, response));
+		return response.getHeader(HttpHeaders.ETAG);
+	}
+
+	private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+		request.setParameter("teamName", "etagTeam");
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		return new ServletWebRequest(request, response);
+	}
+
+	private static ReplicaDataSourceProperties replicaEnabled() {
+		ReplicaDataSourceProperties properties = new ReplicaDataSourceProperties();
+		properties.setEnabled(true);
+		properties.setPrimaryAfterWrite(Duration.ofMillis(PRIMARY_AFTER_WRITE_MILLIS));
+		return properties;
+	}
+}
@@ -0,0 +1,66 @@
+package study.querydsl.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class ResponseEncodingTest {
+	private static final String SEARCH = "/v3/members?teamName=encodingTeam&size=5";
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MockMvc mockMvc;
+
+	@BeforeEach
+	public void before() {
+		Team team = new Team("encodingTeam");
+		em.persist(team);
+		for (int i = 0; i < 10; i++) {
+			em.persist(new Member("encoding" + i, i, team));
+		}
+		em.flush();
+	}
+
+	@Test
+	public void negotiatesBinaryFormats() throws Exception {
+		byte[] json = mockMvc.perform(get(SEARCH))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andReturn().getResponse().getContentAsByteArray();
+		byte[] smile = mockMvc.perform(get(SEARCH).accept("application/x-jackson-smile"))
+			.andExpect(content().contentTypeCompatibleWith("application/x-jackson-smile"))
+			.andReturn().getResponse().getContentAsByteArray();
+		byte[] cbor = mockMvc.perform(get(SEARCH).accept(MediaType.APPLICATION_CBOR))
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+			.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode fromJson = new ObjectMapper().readTree(json);
+		Assertions.assertThat(new ObjectMapper(new SmileFactory()).readTree(smile)).hasToString(fromJson.toString());
+		Assertions.assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor)).hasToString(fromJson.toString());
+		Assertions.assertThat(fromJson.get("totalElements").asLong()).isEqualTo(10);
+		Assertions.assertThat(smile.length).isLessThan(json.length);
+		Assertions.assertThat(cbor.length).isLessThan(json.length);
+	}
+}
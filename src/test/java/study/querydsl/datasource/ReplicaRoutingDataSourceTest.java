@@ -0,0 +1,194 @@
+package study.querydsl.datasource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.Cookie;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.support.StatementCounter;
+
+/**
+ * 메모리 H2 두 개를 primary, replica로 쓴다. replica에는 복제가 없으므로 테스트가 직접 테이블과 행을 만든다.
+ */
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+	"member.datasource.replica.enabled=true",
+	"member.datasource.replica.url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+	"member.datasource.replica.primary-after-write=" + ReplicaRoutingDataSourceTest.PRIMARY_AFTER_WRITE_MILLIS + "ms",
+	"member.search.parallel-count.enabled=true"
+})
+class ReplicaRoutingDataSourceTest {
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+	static final long PRIMARY_AFTER_WRITE_MILLIS = 200;
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	@Autowired
+	MemberJpaRepository memberJpaRepository;
+	@Autowired
+	MemberRepository memberRepository;
+
+	private final List<Long> teamIds = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	public void before() throws Exception {
+		try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+			 Statement statement = connection.createStatement()) {
+			statement.execute("create table if not exists team (team_id bigint primary key, name varchar(255))");
+			statement.execute("create table if not exists member (member_id bigint primary key,"
+				+ " age integer not null, username varchar(255), team_id bigint)");
+			statement.execute("merge into member key (member_id) values (1, 30, 'replicaOnly', null)");
+		}
+		// 이전 테스트(또는 애플리케이션 시작)가 같은 스레드에서 쓴 직후라면 읽기도 primary로 가므로 기다린다
+		Thread.sleep(PRIMARY_AFTER_WRITE_MILLIS + 50);
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.executeWithoutResult(status -> teamIds.forEach(id -> em.remove(em.find(Team.class, id))));
+	}
+
+	@Test
+	public void readOnlyTransactionsUseReplica() {
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica");
+		Assertions.assertThat(database(false)).isEqualToIgnoringCase("primary");
+	}
+
+	@Test
+	public void memberFindersAndSearchesReadFromReplica() {
+		Assertions.assertThat(memberJpaRepository.findByUsername("replicaOnly")).hasSize(1);
+		Assertions.assertThat(memberRepository.findByUsername("replicaOnly")).hasSize(1);
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsername("replicaOnly");
+		Assertions.assertThat(memberRepository.search(condition)).extracting("age").containsExactly(30);
+	}
+
+	@Test
+	public void readsStayOnPrimaryRightAfterWrite() throws Exception {
+		write();
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("primary");
+
+		Thread.sleep(PRIMARY_AFTER_WRITE_MILLIS + 50);
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica");
+	}
+
+	@Test
+	public void parallelCountFollowsContentToPrimaryRightAfterWrite() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("replicaParallel");
+			em.persist(team);
+			for (int i = 0; i < 3; i++) {
+				em.persist(new Member("replicaParallel" + i, i, team));
+			}
+			teamIds.add(team.getId());
+		});
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("replicaParallel");
+		// 첫 페이지가 가득 차 count가 필요하다. count가 replica로 가면 새 회원이 없어 전체 수가 2가 된다
+		Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+		Assertions.assertThat(page.getContent()).hasSize(2);
+		Assertions.assertThat(page.getTotalElements()).isEqualTo(3);
+	}
+
+	@Test
+	public void transactionsWithoutCommittedWriteDoNotPinReads() {
+		Assertions.assertThat(database(false)).isEqualToIgnoringCase("primary");
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica");
+
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.executeWithoutResult(status -> {
+			em.persist(new Team("replicaRolledBack"));
+			em.flush();
+			status.setRollbackOnly();
+		});
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica");
+	}
+
+	@Test
+	public void writeOnOneThreadDoesNotPinReadsOnAnother() {
+		String writerRead = CompletableFuture.supplyAsync(() -> {
+			write();
+			return database(true);
+		}).join();
+
+		Assertions.assertThat(writerRead).isEqualToIgnoringCase("primary");
+		Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica");
+	}
+
+	@Test
+	public void cookieCarriesWriteToSameClientOnly() {
+		MockHttpServletResponse writeResponse = inRequest(new MockHttpServletRequest(), () -> write());
+		Cookie cookie = writeResponse.getCookie(ReadYourWrites.COOKIE);
+		Assertions.assertThat(cookie).isNotNull();
+
+		MockHttpServletRequest sameClient = new MockHttpServletRequest();
+		sameClient.setCookies(cookie);
+		inRequest(sameClient, () -> Assertions.assertThat(database(true)).isEqualToIgnoringCase("primary"));
+		inRequest(new MockHttpServletRequest(),
+			() -> Assertions.assertThat(database(true)).isEqualToIgnoringCase("replica"));
+	}
+
+	@Test
+	public void configuredStatementInspectorStillRuns() {
+		Assertions.assertThat(StatementCounter.count(() -> database(true))).isEqualTo(1);
+	}
+
+	private void write() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("replicaWrite");
+			em.persist(team);
+			teamIds.add(team.getId());
+		});
+	}
+
+	private static MockHttpServletResponse inRequest(MockHttpServletRequest request, Runnable task) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+		try {
+			task.run();
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+		return response;
+	}
+
+	private String database(boolean readOnly) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(readOnly);
+		return transactionTemplate.execute(status ->
+			(String)em.createNativeQuery("select database()").getSingleResult());
+	}
+}
@@ -0,0 +1,78 @@
+package study.querydsl.index;
+
+import static study.querydsl.dto.MemberSearchCondition.*;
+
+import java.util.Locale;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import study.querydsl.dto.MemberCursorSort;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+class IndexAdvisorTest {
+	@Autowired
+	IndexAdvisor indexAdvisor;
+	@Autowired
+	MemberRepository memberRepository;
+
+	@Test
+	public void commonSearchesUseIndex() {
+		int[] shapes = {USERNAME, TEAM_NAME, TEAM_NAME | AGE_GOE | AGE_LOE, AGE_GOE | AGE_LOE, USERNAME | AGE_GOE};
+		for (int shape : shapes) {
+			IndexAdvice advice = indexAdvisor.advise(shape, null);
+			Assertions.assertThat(advice.getUsedIndex()).as(advice.getPlan()).isNotNull();
+			Assertions.assertThat(advice.getDdl()).isNull();
+		}
+	}
+
+	@Test
+	public void recordedWorkloadIsAdvised() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsername("member1");
+		condition.setAgeLoe(30);
+
+		memberRepository.search(condition);
+
+		Assertions.assertThat(indexAdvisor.advise())
+			.extracting(IndexAdvice::getShape)
+			.contains("username+ageLoe");
+	}
+
+	@Test
+	public void explainsRepositoryQuery() {
+		IndexAdvice advice = indexAdvisor.advise(USERNAME_CONTAINS | TEAM_NAME | AGE_GOE, MemberCursorSort.AGE);
+
+		Assertions.assertThat(advice.getSql().toLowerCase(Locale.ROOT))
+			.contains("member_username_gram")
+			.containsPattern("team_id in \\(\\?\\s*,\\s*\\?\\)")
+			.containsPattern("order by \\w+\\.age asc, \\w+\\.member_id asc");
+		Assertions.assertThat(advice.getPlan()).isNotBlank();
+	}
+
+	@Test
+	public void proposedColumns() {
+		Assertions.assertThat(IndexAdvisor.proposedColumns(TEAM_NAME | AGE_GOE, null))
+			.containsExactly("team_id", "age");
+		Assertions.assertThat(IndexAdvisor.proposedColumns(TEAM_NAME, MemberCursorSort.AGE))
+			.containsExactly("team_id", "age");
+		Assertions.assertThat(IndexAdvisor.proposedColumns(USERNAME | TEAM_NAME, null)).containsExactly("username");
+		Assertions.assertThat(IndexAdvisor.proposedColumns(0, MemberCursorSort.ID)).isEmpty();
+	}
+
+	@Test
+	public void usedIndexFromPlan() {
+		Assertions.assertThat(IndexAdvisor.usedIndex("FROM \"PUBLIC\".\"MEMBER\" \"M\"\n"
+			+ "    /* PUBLIC.IDX_MEMBER_TEAM_AGE: TEAM_ID IN(1, 2) */")).isEqualTo("PUBLIC.IDX_MEMBER_TEAM_AGE");
+		Assertions.assertThat(IndexAdvisor.usedIndex("FROM \"PUBLIC\".\"MEMBER\" \"M\"\n"
+			+ "    /* PUBLIC.MEMBER.tableScan */")).isNull();
+		Assertions.assertThat(IndexAdvisor.usedIndex("FROM \"PUBLIC\".\"MEMBER\" \"MEMBER0_\"\n"
+			+ "    /* PUBLIC.IDX_MEMBER_AGE: AGE >= ?3 */")).isEqualTo("PUBLIC.IDX_MEMBER_AGE");
+	}
+}
@@ -0,0 +1,82 @@
+package study.querydsl.metrics;
+
+import static study.querydsl.dto.MemberSearchCondition.*;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+class MemberSearchMetricsTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MeterRegistry registry;
+	@Autowired
+	MemberRepository memberRepository;
+	@Autowired
+	HibernateStatisticsEndpoint hibernateStatisticsEndpoint;
+
+	@Test
+	public void shapeTag() {
+		Assertions.assertThat(MemberSearchMetrics.shapeTag(0)).isEqualTo("none");
+		Assertions.assertThat(MemberSearchMetrics.shapeTag(USERNAME | AGE_LOE)).isEqualTo("username+ageLoe");
+	}
+
+	@Test
+	public void searchPageComplexIsRecordedByShape() {
+		Team team = new Team("metricsTeam");
+		em.persist(team);
+		em.persist(new Member("metricsMember1", 10, team));
+		em.persist(new Member("metricsMember2", 20, team));
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("metricsTeam");
+		Timer latency = registry.find("member.repository.latency")
+			.tags("method", "searchPageComplex", "shape", "teamName")
+			.timer();
+		long before = latency == null ? 0 : latency.count();
+
+		memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+
+		latency = registry.get("member.repository.latency")
+			.tags("method", "searchPageComplex", "shape", "teamName")
+			.timer();
+		DistributionSummary rows = registry.get("member.repository.rows")
+			.tags("method", "searchPageComplex", "shape", "teamName")
+			.summary();
+		Timer countQueries = registry.get("member.repository.count")
+			.tags("method", "searchPageComplex", "shape", "teamName")
+			.timer();
+		Assertions.assertThat(latency.count()).isEqualTo(before + 1);
+		Assertions.assertThat(rows.max()).isGreaterThanOrEqualTo(1);
+		Assertions.assertThat(countQueries.count()).isGreaterThanOrEqualTo(1);
+	}
+
+	@Test
+	public void hibernateStatistics() {
+		em.find(Member.class, -1L);
+
+		Map<String, Object> statistics = hibernateStatisticsEndpoint.statistics();
+
+		Assertions.assertThat(statistics.get("enabled")).isEqualTo(true);
+		Assertions.assertThat(statistics).containsKeys("queryExecutionCount", "entityLoadCount",
+			"secondLevelCacheHitCount", "regions");
+	}
+}
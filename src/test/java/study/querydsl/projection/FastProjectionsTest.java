@@ -0,0 +1,141 @@
+package study.querydsl.projection;
+
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.dto.UserDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+class FastProjectionsTest {
+	@PersistenceContext
+	EntityManager em;
+
+	JPAQueryFactory queryFactory;
+
+	@BeforeEach
+	public void before() {
+		queryFactory = new JPAQueryFactory(em);
+		Team teamA = new Team("projectionTeamA");
+		Team teamB = new Team("projectionTeamB");
+		em.persist(teamA);
+		em.persist(teamB);
+
+		em.persist(new Member("member1", 10, teamA));
+		em.persist(new Member("member2", 20, teamA));
+		em.persist(new Member("member3", 30, teamB));
+		em.persist(new Member("member4", 40, teamB));
+	}
+
+	@Test
+	public void beanMatchesProjectionsBean() {
+		List<MemberDto> expected = queryFactory
+			.select(Projections.bean(MemberDto.class, member.username, member.age))
+			.from(member)
+			.join(member.team, team)
+			.where(team.name.startsWith("projectionTeam"))
+			.fetch();
+
+		List<MemberDto> result = queryFactory
+			.select(FastProjections.bean(MemberDto.class, member.username, member.age))
+			.from(member)
+			.join(member.team, team)
+			.where(team.name.startsWith("projectionTeam"))
+			.fetch();
+
+		Assertions.assertThat(result).hasSize(4).isEqualTo(expected);
+	}
+
+	@Test
+	public void fieldsWithAlias() {
+		QMember memberSub = new QMember("memberSub");
+		List<UserDto> expected = queryFactory
+			.select(Projections.fields(UserDto.class, member.username.as("name"),
+				ExpressionUtils.as(JPAExpressions
+					.select(memberSub.age.max())
+					.from(memberSub), "age")
+			))
+			.from(member)
+			.fetch();
+
+		List<UserDto> result = queryFactory
+			.select(FastProjections.fields(UserDto.class, member.username.as("name"),
+				ExpressionUtils.as(JPAExpressions
+					.select(memberSub.age.max())
+					.from(memberSub), "age")
+			))
+			.from(member)
+			.fetch();
+
+		Assertions.assertThat(result).isEqualTo(expected);
+	}
+
+	@Test
+	public void constructorMatchesQueryProjection() {
+		List<MemberTeamDto> expected = queryFactory
+			.select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+			.from(member)
+			.leftJoin(member.team, team)
+			.fetch();
+
+		List<MemberTeamDto> result = queryFactory
+			.select(FastProjections.constructor(MemberTeamDto.class,
+				member.id, member.username, member.age, team.id, team.name))
+			.from(member)
+			.leftJoin(member.team, team)
+			.fetch();
+
+		Assertions.assertThat(result).isEqualTo(expected);
+	}
+
+	@Test
+	public void constructorDoesNotModifyValues() {
+		FactoryExpression<MemberTeamDto> constructor = FastProjections.constructor(MemberTeamDto.class,
+			member.id, member.username, member.age, team.id, team.name);
+		Object[] values = {1L, "member1", null, null, null};
+
+		MemberTeamDto dto = constructor.newInstance(values);
+
+		Assertions.assertThat(dto.getAge()).isZero();
+		Assertions.assertThat(values).containsExactly(1L, "member1", null, null, null);
+	}
+
+	@Test
+	public void equalExpressionsHaveEqualHashCodes() {
+		FactoryExpression<MemberDto> bean = FastProjections.bean(MemberDto.class, member.username, member.age);
+		FactoryExpression<MemberDto> sameBean = FastProjections.bean(MemberDto.class, member.username, member.age);
+		FactoryExpression<MemberTeamDto> constructor = FastProjections.constructor(MemberTeamDto.class,
+			member.id, member.username, member.age, team.id, team.name);
+		FactoryExpression<MemberTeamDto> sameConstructor = FastProjections.constructor(MemberTeamDto.class,
+			member.id, member.username, member.age, team.id, team.name);
+
+		Assertions.assertThat(bean).isEqualTo(sameBean).hasSameHashCodeAs(sameBean);
+		Assertions.assertThat(constructor).isEqualTo(sameConstructor).hasSameHashCodeAs(sameConstructor);
+		Set<Object> expressions = Set.of(bean, constructor);
+		Assertions.assertThat(expressions).contains(sameBean, sameConstructor);
+	}
+}
@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.StatementCounter;
+
+@SpringBootTest
+@Transactional
+class CountQueryTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MemberRepository memberRepository;
+
+	private JPAQueryFactory queryFactory;
+
+	@BeforeEach
+	public void before() {
+		queryFactory = new JPAQueryFactory(em);
+		Team teamA = new Team("countTeamA");
+		Team teamB = new Team("countTeamB");
+		em.persist(teamA);
+		em.persist(teamB);
+		for (int i = 0; i < 12; i++) {
+			em.persist(new Member("countMember" + i, i * 5, i % 3 == 0 ? null : i % 3 == 1 ? teamA : teamB));
+		}
+		em.flush();
+		em.clear();
+	}
+
+	@Test
+	public void dropsUnreferencedToOneJoin() {
+		CountQuery withoutTeam = CountQuery.from(queryFactory, member, member.id)
+			.leftJoin(member.team, team)
+			.where(member.age.goe(10), member.team.id.isNotNull(),
+				UsernamePredicates.contains(member.id, member.username, "ountMem", true));
+		CountQuery withTeam = CountQuery.from(queryFactory, member, member.id)
+			.leftJoin(member.team, team)
+			.where(team.name.eq("countTeamA"));
+
+		Assertions.assertThat(withoutTeam.toQuery().getMetadata().getJoins()).hasSize(1);
+		Assertions.assertThat(withTeam.toQuery().getMetadata().getJoins()).hasSize(2);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void countMatchesFetchCount() {
+		for (Predicate[] where : predicates()) {
+			long expected = queryFactory
+				.selectFrom(member)
+				.leftJoin(member.team, team)
+				.where(where)
+				.fetchCount();
+			long derived = CountQuery.from(queryFactory, member, member.id)
+				.leftJoin(member.team, team)
+				.where(where)
+				.fetch();
+			Assertions.assertThat(derived).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void pageTotalsMatchFetchResults() {
+		for (MemberSearchCondition condition : conditions()) {
+			long expected = queryFactory
+				.selectFrom(member)
+				.leftJoin(member.team, team)
+				.where(
+					condition.getUsernameStartsWith() != null
+						? member.username.startsWith(condition.getUsernameStartsWith()) : null,
+					condition.getTeamName() != null ? team.name.eq(condition.getTeamName()) : null,
+					condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null)
+				.offset(0)
+				.limit(1)
+				.fetchResults()
+				.getTotal();
+			for (int page = 0; page < 3; page++) {
+				PageRequest pageRequest = PageRequest.of(page, 4);
+				Assertions.assertThat(memberRepository.searchPageSimple(condition, pageRequest).getTotalElements())
+					.as("searchPageSimple %s page %d", condition, page)
+					.isEqualTo(expected);
+				Assertions.assertThat(memberRepository.searchPageComplex(condition, pageRequest).getTotalElements())
+					.as("searchPageComplex %s page %d", condition, page)
+					.isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	public void countIsSkippedWhenImpliedByContent() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameStartsWith("countMember");
+
+		Page<MemberTeamDto> lastPage = StatementCounter.assertAtMost(1,
+			() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 100)));
+		Assertions.assertThat(lastPage.getTotalElements()).isEqualTo(12);
+		Assertions.assertThat(StatementCounter.count(
+			() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 5)))).isEqualTo(2);
+	}
+
+	private static List<Predicate[]> predicates() {
+		List<Predicate[]> predicates = new ArrayList<>();
+		predicates.add(new Predicate[] {member.username.startsWith("countMember")});
+		predicates.add(new Predicate[] {member.username.startsWith("countMember"), member.age.goe(20)});
+		predicates.add(new Predicate[] {team.name.eq("countTeamA")});
+		predicates.add(new Predicate[] {team.name.eq("countTeamB"), member.age.loe(40)});
+		predicates.add(new Predicate[] {member.username.startsWith("countMember"), team.name.isNull()});
+		predicates.add(new Predicate[] {member.username.startsWith("countMember"), member.team.id.isNull()});
+		predicates.add(new Predicate[] {team.name.eq("noSuchTeam")});
+		return predicates;
+	}
+
+	private static List<MemberSearchCondition> conditions() {
+		List<MemberSearchCondition> conditions = new ArrayList<>();
+		for (String teamName : new String[] {null, "countTeamA", "countTeamB", "noSuchTeam"}) {
+			for (Integer ageGoe : new Integer[] {null, 25}) {
+				MemberSearchCondition condition = new MemberSearchCondition();
+				condition.setUsernameStartsWith("countMember");
+				condition.setTeamName(teamName);
+				condition.setAgeGoe(ageGoe);
+				conditions.add(condition);
+			}
+		}
+		return conditions;
+	}
+}
@@ -0,0 +1,114 @@
+package study.querydsl.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.search.MemberColumnarIndex;
+
+@SpringBootTest(properties = {
+	"member.bulk.chunk-size=10",
+	"member.search.read-model.enabled=true",
+	"member.search.in-memory.enabled=true"
+})
+class MemberBulkRepositoryTest {
+	private static final int MEMBERS = 25;
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberBulkRepository memberBulkRepository;
+	@Autowired
+	MemberRepository memberRepository;
+	@Autowired
+	MemberColumnarIndex columnarIndex;
+
+	@BeforeEach
+	public void before() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("bulkTeam");
+			em.persist(team);
+			for (int i = 0; i < MEMBERS; i++) {
+				em.persist(new Member("bulkMember" + i, i, team));
+			}
+		});
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		// JPQL로 지우면 읽기 모델과 인메모리 인덱스에 남으므로 벌크 리포지토리로 지운다
+		memberBulkRepository.delete(bulkTeam(), progress -> {
+		});
+		transactionTemplate.executeWithoutResult(status ->
+			em.createQuery("delete from Team t where t.name = 'bulkTeam'").executeUpdate());
+	}
+
+	@Test
+	public void addAgeRunsInChunksAndKeepsSearchConsistent() {
+		MemberSearchCondition condition = bulkTeam();
+		Assertions.assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 5)).getTotalElements())
+			.isEqualTo(MEMBERS);
+		List<MemberBulkProgress> progress = new ArrayList<>();
+
+		MemberBulkProgress result = memberBulkRepository.addAge(condition, 100, progress::add);
+
+		Assertions.assertThat(result.isCompleted()).isTrue();
+		Assertions.assertThat(result.getRows()).isEqualTo(MEMBERS);
+		Assertions.assertThat(result.getChunks()).isEqualTo(3);
+		Assertions.assertThat(progress).extracting("rows").containsExactly(10L, 20L, 25L);
+
+		condition.setAgeGoe(100);
+		Assertions.assertThat(memberRepository.search(condition)).hasSize(MEMBERS);
+		Assertions.assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 5)).getTotalElements())
+			.isEqualTo(MEMBERS);
+		Assertions.assertThat(columnarIndex.search(condition, PageRequest.of(0, 5)).getTotalElements())
+			.isEqualTo(MEMBERS);
+	}
+
+	@Test
+	public void deleteRemovesOnlyMatchingRows() {
+		MemberSearchCondition condition = bulkTeam();
+		condition.setAgeGoe(15);
+
+		MemberBulkProgress result = memberBulkRepository.delete(condition, progress -> {
+		});
+
+		Assertions.assertThat(result.getRows()).isEqualTo(MEMBERS - 15);
+		Assertions.assertThat(result.getChunks()).isEqualTo(1);
+		List<MemberTeamDto> remaining = memberRepository.search(bulkTeam());
+		Assertions.assertThat(remaining).hasSize(15);
+		Assertions.assertThat(remaining).allMatch(row -> row.getAge() < 15);
+		Assertions.assertThat(columnarIndex.search(bulkTeam(), PageRequest.of(0, 50)).getTotalElements())
+			.isEqualTo(15);
+	}
+
+	@Test
+	public void refusesToRunInsideTransaction() {
+		Assertions.assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+				memberBulkRepository.changeUsername(bulkTeam(), "renamed", progress -> {
+				})))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static MemberSearchCondition bulkTeam() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("bulkTeam");
+		return condition;
+	}
+}
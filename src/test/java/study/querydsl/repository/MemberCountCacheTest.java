@@ -0,0 +1,49 @@
+package study.querydsl.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+
+@SpringBootTest
+class MemberCountCacheTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberCountCache countCache;
+
+	@Test
+	public void cacheHitAndInvalidation() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsername("countCacheMember");
+		MemberSearchCondition sameShape = new MemberSearchCondition();
+		sameShape.setUsername("countCacheMember");
+		sameShape.setTeamName(" ");
+		AtomicInteger counted = new AtomicInteger();
+
+		countCache.get(condition, () -> counted.incrementAndGet());
+		countCache.get(sameShape, () -> counted.incrementAndGet());
+		Assertions.assertThat(counted.get()).isEqualTo(1);
+
+		Member member = transactionTemplate.execute(status -> {
+			Member newMember = new Member("countCacheMember", 10);
+			em.persist(newMember);
+			return newMember;
+		});
+
+		countCache.get(condition, () -> counted.incrementAndGet());
+		Assertions.assertThat(counted.get()).isEqualTo(2);
+
+		transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Member.class, member.getId())));
+	}
+}
@@ -0,0 +1,92 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.StatementCounter;
+
+@SpringBootTest
+@Transactional
+class MemberFetchProfileTest {
+	private static final int TEAMS = 3;
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MemberJpaRepository memberJpaRepository;
+	@Autowired
+	MemberRepository memberRepository;
+
+	@BeforeEach
+	public void before() {
+		for (int i = 0; i < TEAMS; i++) {
+			Team team = new Team("fetchTeam" + i);
+			em.persist(team);
+			em.persist(new Member("fetchMember" + i, 10 + i, team));
+			em.persist(new Member("fetchMember" + i, 20 + i, team));
+		}
+		em.flush();
+		em.clear();
+		// 팀이 2차 캐시에서 나오면 N+1이 SQL로 드러나지 않는다
+		em.getEntityManagerFactory().getCache().evictAll();
+	}
+
+	@Test
+	public void memberQueriesLoadTeamInOneStatement() {
+		StatementCounter.assertAtMost(1, () -> teamNames(memberJpaRepository.findAll()));
+		em.clear();
+		StatementCounter.assertAtMost(1, () -> teamNames(memberJpaRepository.findAll_Querydsl()));
+		em.clear();
+		List<String> teamNames = StatementCounter.assertAtMost(1,
+			() -> teamNames(memberJpaRepository.findByUsername_Querydsl("fetchMember1")));
+		Assertions.assertThat(teamNames).containsExactly("fetchTeam1", "fetchTeam1");
+		em.clear();
+		StatementCounter.assertAtMost(1, () -> teamNames(memberJpaRepository.findByUsername("fetchMember1")));
+		em.clear();
+		StatementCounter.assertAtMost(1, () -> teamNames(memberRepository.findByUsername("fetchMember2")));
+	}
+
+	@Test
+	public void teamMembersAreBatchLoaded() {
+		int members = StatementCounter.assertAtMost(2, () ->
+			em.createQuery("select t from Team t where t.name like 'fetchTeam%'", Team.class)
+				.getResultList().stream()
+				.mapToInt(team -> team.getMembers().size())
+				.sum());
+
+		Assertions.assertThat(members).isEqualTo(TEAMS * 2);
+	}
+
+	@Test
+	public void detectsLazyTeamAccessWithoutFetchProfile() {
+		int statements = StatementCounter.count(() ->
+			teamNames(em.createQuery("select m from Member m where m.username like 'fetchMember%'", Member.class)
+				.getResultList()));
+
+		Assertions.assertThat(statements).isGreaterThan(1);
+		em.clear();
+		Assertions.assertThatThrownBy(() -> StatementCounter.assertAtMost(1, () ->
+				teamNames(em.createQuery("select m from Member m where m.username like 'fetchMember%'", Member.class)
+					.getResultList())))
+			.isInstanceOf(AssertionError.class);
+	}
+
+	private static List<String> teamNames(List<Member> members) {
+		return members.stream()
+			.map(Member::getTeam)
+			.filter(team -> team != null)
+			.map(Team::getName)
+			.collect(Collectors.toList());
+	}
+}
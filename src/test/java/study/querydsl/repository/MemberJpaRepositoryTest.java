@@ -1,6 +1,8 @@
 package study.querydsl.repository;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.persistence.EntityManager;
 
@@ -63,4 +65,31 @@ class MemberJpaRepositoryTest {
 
 		Assertions.assertThat(result).extracting("username").containsExactly("member4");
 	}
+
+	@Test
+	public void searchStreamTest() {
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		em.persist(teamA);
+		em.persist(teamB);
+
+		Member member1 = new Member("member1", 10, teamA);
+		Member member2 = new Member("member2", 20, teamA);
+		Member member3 = new Member("member3", 30, teamB);
+		Member member4 = new Member("member4", 40, teamB);
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setAgeGoe(35);
+		condition.setAgeLoe(40);
+		condition.setTeamName("teamB");
+
+		try (Stream<MemberTeamDto> result = memberJpaRepository.searchStream(condition)) {
+			Assertions.assertThat(result.map(MemberTeamDto::getUsername).collect(Collectors.toList()))
+				.containsExactly("member4");
+		}
+	}
 }
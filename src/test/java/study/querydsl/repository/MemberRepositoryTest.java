@@ -1,10 +1,17 @@
 package study.querydsl.repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -12,6 +19,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
+import study.querydsl.dto.InvalidCursorException;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberCursorSort;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -23,6 +33,8 @@ class MemberRepositoryTest {
 	@Autowired
 	EntityManager em;
 	@Autowired
+	EntityManagerFactory emf;
+	@Autowired
 	MemberRepository memberRepository;
 
 	@Test
@@ -92,4 +104,119 @@ class MemberRepositoryTest {
 			.extracting("username")
 			.containsExactly("member1", "member2", "member3");
 	}
+
+	@Test
+	public void searchByCursorTest() {
+		Team cursorTeam = new Team("cursorTeam");
+		em.persist(cursorTeam);
+
+		Member member1 = new Member("member1", 40, cursorTeam);
+		Member member2 = new Member("member2", 30, cursorTeam);
+		Member member3 = new Member("member3", 20, cursorTeam);
+		Member member4 = new Member("member4", 10, cursorTeam);
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("cursorTeam");
+
+		MemberCursorPage first = memberRepository.searchByCursor(condition, null, 3, MemberCursorSort.AGE);
+		Assertions.assertThat(first.getContent())
+			.extracting("username")
+			.containsExactly("member4", "member3", "member2");
+		Assertions.assertThat(first.isHasNext()).isTrue();
+
+		MemberCursorPage second = memberRepository.searchByCursor(condition, first.getNextCursor(), 3,
+			MemberCursorSort.AGE);
+		Assertions.assertThat(second.getContent())
+			.extracting("username")
+			.containsExactly("member1");
+		Assertions.assertThat(second.isHasNext()).isFalse();
+	}
+
+	@Test
+	public void searchByCursorRejectsInvalidCursor() {
+		Team invalidCursorTeam = new Team("invalidCursorTeam");
+		em.persist(invalidCursorTeam);
+		em.persist(new Member("member1", 10, invalidCursorTeam));
+		em.persist(new Member("member2", 20, invalidCursorTeam));
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("invalidCursorTeam");
+		MemberCursorPage first = memberRepository.searchByCursor(condition, null, 1, MemberCursorSort.ID);
+
+		Assertions.assertThatThrownBy(() -> memberRepository.searchByCursor(condition, "not-a-cursor", 1,
+				MemberCursorSort.ID))
+			.isInstanceOf(InvalidCursorException.class)
+			.hasMessage("invalid cursor");
+		String missingParts = Base64.getUrlEncoder().encodeToString("ID".getBytes(StandardCharsets.UTF_8));
+		Assertions.assertThatThrownBy(() -> memberRepository.searchByCursor(condition, missingParts, 1,
+				MemberCursorSort.ID))
+			.isInstanceOf(InvalidCursorException.class)
+			.hasMessage("invalid cursor");
+		Assertions.assertThatThrownBy(() -> memberRepository.searchByCursor(condition, first.getNextCursor(), 1,
+				MemberCursorSort.AGE))
+			.isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	public void searchBatchTest() {
+		Team batchTeamA = new Team("batchTeamA");
+		Team batchTeamB = new Team("batchTeamB");
+		em.persist(batchTeamA);
+		em.persist(batchTeamB);
+		em.persist(new Member("batchMember1", 10, batchTeamA));
+		em.persist(new Member("batchMember2", 20, batchTeamA));
+		em.persist(new Member("batchMember3", 30, batchTeamB));
+		em.flush();
+
+		MemberSearchCondition teamA = new MemberSearchCondition();
+		teamA.setTeamName("batchTeamA");
+		MemberSearchCondition olderInTeamB = new MemberSearchCondition();
+		olderInTeamB.setTeamName("batchTeamB");
+		olderInTeamB.setAgeGoe(25);
+		MemberSearchCondition byName = new MemberSearchCondition();
+		byName.setUsername("batchMember2");
+		MemberSearchCondition nobody = new MemberSearchCondition();
+		nobody.setUsername("batchNobody");
+		MemberSearchCondition youngByPrefix = new MemberSearchCondition();
+		youngByPrefix.setUsernameStartsWith("batchMem");
+		youngByPrefix.setAgeLoe(20);
+		MemberSearchCondition byPart = new MemberSearchCondition();
+		byPart.setUsernameContains("ember3");
+		List<MemberSearchCondition> conditions = List.of(teamA, olderInTeamB, byName, teamA, nobody, youngByPrefix,
+			byPart);
+
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		long statements = statistics.getPrepareStatementCount();
+		Map<Integer, List<MemberTeamDto>> result = memberRepository.searchBatch(conditions);
+		Assertions.assertThat(statistics.getPrepareStatementCount() - statements).isEqualTo(1);
+
+		Assertions.assertThat(result).containsOnlyKeys(0, 1, 2, 3, 4, 5, 6);
+		for (int i = 0; i < conditions.size(); i++) {
+			Assertions.assertThat(result.get(i))
+				.usingRecursiveFieldByFieldElementComparator()
+				.containsExactlyInAnyOrderElementsOf(memberRepository.search(conditions.get(i)));
+		}
+		Assertions.assertThat(result.get(1)).extracting("username").containsExactly("batchMember3");
+		Assertions.assertThat(result.get(4)).isEmpty();
+		Assertions.assertThat(result.get(5)).extracting("username")
+			.containsExactlyInAnyOrder("batchMember1", "batchMember2");
+	}
+
+	@Test
+	public void searchBatchRejectsNullAndEmptyConditions() {
+		MemberSearchCondition teamA = new MemberSearchCondition();
+		teamA.setTeamName("batchTeamA");
+		MemberSearchCondition blank = new MemberSearchCondition();
+		blank.setUsername(" ");
+
+		Assertions.assertThatThrownBy(() -> memberRepository.searchBatch(Arrays.asList(teamA, null)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("condition 1");
+		Assertions.assertThatThrownBy(() -> memberRepository.searchBatch(List.of(teamA, blank)))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("condition 1");
+	}
 }
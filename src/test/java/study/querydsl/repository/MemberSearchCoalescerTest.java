@@ -0,0 +1,178 @@
+package study.querydsl.repository;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import study.querydsl.datasource.ReadYourWrites;
+import study.querydsl.datasource.ReplicaDataSourceProperties;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+class MemberSearchCoalescerTest {
+	private final MemberRepository memberRepository = mock(MemberRepository.class);
+	private final MemberDataVersion dataVersion = new MemberDataVersion();
+	private final ReplicaDataSourceProperties replicaProperties = replicaEnabled();
+	private final MemberSearchCoalescer coalescer =
+		new MemberSearchCoalescer(memberRepository, dataVersion, replicaProperties, true);
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger calls = new AtomicInteger();
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void before() {
+		executor = Executors.newFixedThreadPool(4);
+		// 첫 호출만 release될 때까지 DB에서 오래 걸리는 것처럼 붙잡아 둔다
+		when(memberRepository.searchPageComplex(any(), any())).thenAnswer(invocation -> {
+			int call = calls.incrementAndGet();
+			if (call == 1) {
+				started.countDown();
+				release.await();
+			}
+			return page(call);
+		});
+	}
+
+	@AfterEach
+	public void after() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void identicalConcurrentSearchesShareOneExecution() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+		List<Future<Page<MemberTeamDto>>> joined = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			joined.add(executor.submit(() -> search("teamA")));
+		}
+		awaitShared(3);
+		release.countDown();
+
+		Page<MemberTeamDto> result = first.get(5, TimeUnit.SECONDS);
+		for (Future<Page<MemberTeamDto>> future : joined) {
+			Assertions.assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(result);
+		}
+		verify(memberRepository, times(1)).searchPageComplex(any(), any());
+		Assertions.assertThat(coalescer.getExecutions()).isEqualTo(1);
+	}
+
+	@Test
+	public void differentSearchesDoNotWait() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+
+		Assertions.assertThat(search("teamB")).isEqualTo(page(2));
+		release.countDown();
+		Assertions.assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(page(1));
+	}
+
+	@Test
+	public void doesNotJoinExecutionStartedBeforeOwnCommittedWrite() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+
+		// 호출한 쪽의 쓰기가 커밋되어 버전이 올라갔다
+		dataVersion.increment();
+		Assertions.assertThat(search("teamA")).isEqualTo(page(2));
+		release.countDown();
+		Assertions.assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(page(1));
+		Assertions.assertThat(coalescer.getShared()).isZero();
+	}
+
+	@Test
+	public void callerPinnedToPrimaryDoesNotJoinReplicaRead() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+
+		// 호출한 쪽이 방금 쓰기를 커밋해 읽기가 primary로 간다. 앞선 실행은 replica에서 읽는 중이다
+		long primaryUntil = System.currentTimeMillis() + replicaProperties.getPrimaryAfterWrite().toMillis();
+		Page<MemberTeamDto> pinned = ReadYourWrites.callWith(primaryUntil, () -> search("teamA"));
+		Assertions.assertThat(pinned).isEqualTo(page(2));
+		release.countDown();
+		Assertions.assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(page(1));
+		Assertions.assertThat(coalescer.getShared()).isZero();
+	}
+
+	@Test
+	public void runsDirectlyInsideCallersTransaction() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			Assertions.assertThat(search("teamA")).isEqualTo(page(2));
+		} finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		Assertions.assertThat(coalescer.getShared()).isZero();
+	}
+
+	@Test
+	public void joinsFromReadOnlyTransaction() throws Exception {
+		Future<Page<MemberTeamDto>> first = executor.submit(() -> search("teamA"));
+		started.await();
+
+		Future<Page<MemberTeamDto>> readOnly = executor.submit(() -> {
+			TransactionSynchronizationManager.setActualTransactionActive(true);
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+			try {
+				return search("teamA");
+			} finally {
+				TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+				TransactionSynchronizationManager.setActualTransactionActive(false);
+			}
+		});
+		awaitShared(1);
+		release.countDown();
+		Assertions.assertThat(readOnly.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+		verify(memberRepository, times(1)).searchPageComplex(any(), any());
+	}
+
+	private Page<MemberTeamDto> search(String teamName) {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName(teamName);
+		condition.setUsername("");
+		return coalescer.searchPageComplex(condition, PageRequest.of(0, 20));
+	}
+
+	private void awaitShared(long shared) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalescer.getShared() < shared && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		Assertions.assertThat(coalescer.getShared()).isEqualTo(shared);
+	}
+
+	private static ReplicaDataSourceProperties replicaEnabled() {
+		ReplicaDataSourceProperties properties = new ReplicaDataSourceProperties();
+		properties.setEnabled(true);
+		return properties;
+	}
+
+	private static Page<MemberTeamDto> page(int call) {
+		return new PageImpl<>(List.of(new MemberTeamDto((long)call, "member" + call, call, 1L, "teamA")),
+			PageRequest.of(0, 20), 1);
+	}
+}
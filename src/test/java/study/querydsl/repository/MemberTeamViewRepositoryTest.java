@@ -0,0 +1,115 @@
+package study.querydsl.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest(properties = "member.search.read-model.enabled=true")
+class MemberTeamViewRepositoryTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MemberRepository memberRepository;
+	@Autowired
+	MemberTeamViewRepository memberTeamViewRepository;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> em
+			.createQuery("select t from Team t where t.name like 'viewTeam%'", Team.class)
+			.getResultList()
+			.forEach(em::remove));
+	}
+
+	/**
+	 * 읽기 모델은 커밋 직전에 맞춰지므로 변경마다 커밋한다
+	 */
+	@Test
+	public void readModelFollowsEntityChanges() {
+		Long[] ids = transactionTemplate.execute(status -> {
+			Team viewTeamA = new Team("viewTeamA");
+			Team viewTeamB = new Team("viewTeamB");
+			em.persist(viewTeamA);
+			em.persist(viewTeamB);
+			Member member1 = new Member("viewMember1", 10, viewTeamA);
+			Member member2 = new Member("viewMember2", 20, viewTeamA);
+			em.persist(member1);
+			em.persist(member2);
+			return new Long[] {viewTeamA.getId(), viewTeamB.getId(), member1.getId(), member2.getId()};
+		});
+
+		Assertions.assertThat(memberRepository.search(teamName("viewTeamA")))
+			.extracting("username")
+			.containsExactlyInAnyOrder("viewMember1", "viewMember2");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Team viewTeamA = em.find(Team.class, ids[0]);
+			Team viewTeamB = em.find(Team.class, ids[1]);
+			Member member1 = em.find(Member.class, ids[2]);
+			Member member2 = em.find(Member.class, ids[3]);
+			member2.changeTeam(viewTeamB);
+			member2.setAge(21);
+			viewTeamB.setName("viewTeamRenamed");
+			viewTeamA.getMembers().remove(member1);
+			em.remove(member1);
+		});
+
+		Assertions.assertThat(memberRepository.search(teamName("viewTeamA"))).isEmpty();
+		List<MemberTeamDto> renamed = memberRepository.search(teamName("viewTeamRenamed"));
+		Assertions.assertThat(renamed).extracting("username", "age", "teamId")
+			.containsExactly(Assertions.tuple("viewMember2", 21, ids[1]));
+		Assertions.assertThat(memberRepository.searchPageComplex(teamName("viewTeamRenamed"), PageRequest.of(0, 10)))
+			.hasSize(1);
+	}
+
+	@Test
+	public void uncommittedChangesAreNotWritten() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("viewTeamRolledBack");
+			em.persist(team);
+			em.persist(new Member("viewMemberRolledBack", 10, team));
+			em.flush();
+			status.setRollbackOnly();
+		});
+
+		Assertions.assertThat(memberRepository.search(teamName("viewTeamRolledBack"))).isEmpty();
+	}
+
+	@Test
+	@Transactional
+	public void rebuild() {
+		Team team = new Team("viewTeamRebuild");
+		em.persist(team);
+		em.persist(new Member("viewMemberRebuild", 30, team));
+		em.flush();
+		em.createQuery("update Member m set m.age = 31 where m.username = 'viewMemberRebuild'").executeUpdate();
+
+		memberTeamViewRepository.rebuild();
+
+		Assertions.assertThat(memberRepository.search(teamName("viewTeamRebuild")))
+			.extracting("age")
+			.containsExactly(31);
+	}
+
+	private static MemberSearchCondition teamName(String teamName) {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName(teamName);
+		return condition;
+	}
+}
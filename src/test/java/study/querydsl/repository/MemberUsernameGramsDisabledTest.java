@@ -0,0 +1,49 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest(properties = "member.search.username-grams.enabled=false")
+@Transactional
+class MemberUsernameGramsDisabledTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	MemberRepository memberRepository;
+
+	@Test
+	public void containsFallsBackToLikeWithoutWritingGrams() {
+		Team team = new Team("noGramsTeam");
+		em.persist(team);
+		Member alice = new Member("alice", 20, team);
+		em.persist(alice);
+		em.persist(new Member("icelic", 20, team));
+		em.flush();
+
+		Number grams = (Number)em.createNativeQuery("select count(*) from member_username_gram where member_id = ?")
+			.setParameter(1, alice.getId())
+			.getSingleResult();
+		Assertions.assertThat(grams.longValue()).isZero();
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("noGramsTeam");
+		condition.setUsernameContains("lice");
+		List<String> usernames = memberRepository.search(condition).stream()
+			.map(MemberTeamDto::getUsername)
+			.collect(Collectors.toList());
+		Assertions.assertThat(usernames).containsExactly("alice");
+	}
+}
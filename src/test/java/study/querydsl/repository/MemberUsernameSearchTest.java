@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 트라이그램 색인은 커밋 직전에 맞춰지므로 데이터를 커밋하고, 끝나면 팀을 엔티티로 지워(members는 cascade) 색인도 지운다.
+ */
+@SpringBootTest
+class MemberUsernameSearchTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberRepository memberRepository;
+	@Autowired
+	MemberJpaRepository memberJpaRepository;
+
+	private Long teamId;
+	private Long bobId;
+
+	@BeforeEach
+	public void before() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("usernameTeam");
+			em.persist(team);
+			for (String username : new String[] {"alice", "alicia", "malice", "icelic", "al%x"}) {
+				em.persist(new Member(username, 20, team));
+			}
+			Member bob = new Member("bob", 30, team);
+			em.persist(bob);
+			teamId = team.getId();
+			bobId = bob.getId();
+		});
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> em.remove(em.find(Team.class, teamId)));
+	}
+
+	@Test
+	public void startsWith() {
+		MemberSearchCondition condition = condition();
+		condition.setUsernameStartsWith("ali");
+
+		Assertions.assertThat(usernames(memberRepository.search(condition)))
+			.containsExactlyInAnyOrder("alice", "alicia");
+		Assertions.assertThat(usernames(memberJpaRepository.search(condition)))
+			.containsExactlyInAnyOrder("alice", "alicia");
+	}
+
+	@Test
+	public void containsUsesTrigramsAndChecksOrder() {
+		MemberSearchCondition condition = condition();
+		condition.setUsernameContains("lice");
+
+		// icelic은 lic, ice 트라이그램을 모두 갖지만 lice를 포함하지 않는다
+		Assertions.assertThat(usernames(memberRepository.search(condition)))
+			.containsExactlyInAnyOrder("alice", "malice");
+		Assertions.assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements())
+			.isEqualTo(2);
+		Assertions.assertThat(usernames(memberJpaRepository.searchByBuilder(condition)))
+			.containsExactlyInAnyOrder("alice", "malice");
+	}
+
+	@Test
+	public void shortAndEscapedTerms() {
+		MemberSearchCondition condition = condition();
+		condition.setUsernameContains("li");
+		Assertions.assertThat(usernames(memberRepository.search(condition)))
+			.containsExactlyInAnyOrder("alice", "alicia", "malice", "icelic");
+
+		condition.setUsernameContains("%");
+		Assertions.assertThat(usernames(memberRepository.search(condition))).containsExactly("al%x");
+	}
+
+	@Test
+	public void gramsFollowUsernameChanges() {
+		Assertions.assertThat(gramCount(bobId)).isEqualTo(1);
+
+		transactionTemplate.executeWithoutResult(status -> em.find(Member.class, bobId).setUsername("bobalice"));
+		MemberSearchCondition condition = condition();
+		condition.setUsernameContains("lice");
+		Assertions.assertThat(usernames(memberRepository.search(condition)))
+			.containsExactlyInAnyOrder("alice", "malice", "bobalice");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Member bob = em.find(Member.class, bobId);
+			bob.getTeam().getMembers().remove(bob);
+			em.remove(bob);
+		});
+		Assertions.assertThat(gramCount(bobId)).isZero();
+	}
+
+	@Test
+	public void gramsAreNotWrittenWhenTransactionRollsBack() {
+		transactionTemplate.executeWithoutResult(status -> {
+			em.find(Member.class, bobId).setUsername("bobalice");
+			em.flush();
+			status.setRollbackOnly();
+		});
+
+		Assertions.assertThat(gramCount(bobId)).isEqualTo(1);
+	}
+
+	private long gramCount(Long memberId) {
+		return transactionTemplate.execute(status -> ((Number)em
+			.createNativeQuery("select count(*) from member_username_gram where member_id = ?")
+			.setParameter(1, memberId)
+			.getSingleResult()).longValue());
+	}
+
+	private static MemberSearchCondition condition() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("usernameTeam");
+		return condition;
+	}
+
+	private static List<String> usernames(List<MemberTeamDto> rows) {
+		return rows.stream().map(MemberTeamDto::getUsername).collect(Collectors.toList());
+	}
+}
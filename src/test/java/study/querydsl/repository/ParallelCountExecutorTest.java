@@ -0,0 +1,136 @@
+package study.querydsl.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest(properties = {
+	"member.search.parallel-count.enabled=true",
+	"member.search.parallel-count.pool-size=1",
+	"member.search.parallel-count.timeout=60s"
+})
+class ParallelCountExecutorTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberRepository memberRepository;
+	@Autowired
+	ParallelCountExecutor parallelCountExecutor;
+	@Autowired
+	MemberCountCache countCache;
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.team.id in "
+				+ "(select t.id from Team t where t.name = 'parallelTeam')").executeUpdate();
+			em.createQuery("delete from Team t where t.name = 'parallelTeam'").executeUpdate();
+		});
+	}
+
+	@Test
+	public void countRunsAlongsideContent() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("parallelTeam");
+			em.persist(team);
+			for (int i = 0; i < 5; i++) {
+				em.persist(new Member("parallel" + i, i, team));
+			}
+		});
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("parallelTeam");
+
+		Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+
+		Assertions.assertThat(result.getContent()).hasSize(2);
+		Assertions.assertThat(result.getTotalElements()).isEqualTo(5);
+	}
+
+	@Test
+	public void cancelStopsRunningCount() throws Exception {
+		CompletableFuture<Long> slowCount = parallelCountExecutor.submit(() -> ((Number)em
+			.createNativeQuery("select count(*) from system_range(1, 2000000000) where mod(x, 7) = 3")
+			.getSingleResult()).longValue());
+		awaitRunning("mod(x, 7) = 3");
+		slowCount.cancel(true);
+		Assertions.assertThat(slowCount).isCancelled();
+
+		// 스레드가 하나뿐이므로 취소된 statement가 끝나야 다음 count가 실행된다
+		CompletableFuture<Long> next = parallelCountExecutor.submit(() -> 1L);
+		Assertions.assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo(1L);
+	}
+
+	@Test
+	public void unusedCountIsCancelled() throws Exception {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("parallelTeam");
+			em.persist(team);
+			em.persist(new Member("parallelUnused", 1, team));
+		});
+		// 스레드가 하나뿐이므로 이 작업이 끝날 때까지 검색의 count는 대기열에 남는다
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Long> blocker = parallelCountExecutor.submit(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return 0L;
+		});
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("parallelTeam");
+		condition.setUsername("parallelUnused");
+		Page<MemberTeamDto> result;
+		try {
+			// 첫 페이지가 다 차지 않으므로 count 없이 전체 수를 안다
+			result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+		} finally {
+			release.countDown();
+		}
+		Assertions.assertThat(result.getTotalElements()).isEqualTo(1);
+
+		blocker.get(10, TimeUnit.SECONDS);
+		Assertions.assertThat(parallelCountExecutor.submit(() -> 1L).get(10, TimeUnit.SECONDS)).isEqualTo(1L);
+		// 취소된 count는 실행되지 않아 캐시에 남지 않는다
+		Assertions.assertThat(countCache.contains(condition)).isFalse();
+	}
+
+	/**
+	 * 다른 세션에서 sqlPart를 포함한 문장이 실행 중일 때까지 기다린다
+	 */
+	private void awaitRunning(String sqlPart) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (System.nanoTime() < deadline) {
+			Number running = transactionTemplate.execute(status -> (Number)em.createNativeQuery(
+					"select count(*) from information_schema.sessions"
+						+ " where session_id <> session_id() and executing_statement like ?1")
+				.setParameter(1, "%" + sqlPart + "%")
+				.getSingleResult());
+			if (running.longValue() > 0) {
+				return;
+			}
+			Thread.sleep(1);
+		}
+		Assertions.fail("statement containing '" + sqlPart + "' did not start");
+	}
+}
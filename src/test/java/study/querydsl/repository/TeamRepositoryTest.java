@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+class TeamRepositoryTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	EntityManagerFactory emf;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	TeamRepository teamRepository;
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status ->
+			em.createQuery("delete from Team t where t.name = 'cachedTeam'").executeUpdate());
+	}
+
+	@Test
+	public void teamLookupsAreServedFromCache() {
+		Long teamId = transactionTemplate.execute(status -> {
+			Team team = new Team("cachedTeam");
+			em.persist(team);
+			return team.getId();
+		});
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+		Assertions.assertThat(teamRepository.findIdsByName("cachedTeam")).containsExactly(teamId);
+		long queryCacheHits = statistics.getQueryCacheHitCount();
+		Assertions.assertThat(teamRepository.findIdsByName("cachedTeam")).containsExactly(teamId);
+		Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(queryCacheHits + 1);
+
+		transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId));
+		long entityCacheHits = statistics.getSecondLevelCacheHitCount();
+		transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId));
+		Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(entityCacheHits);
+	}
+}
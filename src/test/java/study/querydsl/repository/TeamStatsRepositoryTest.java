@@ -0,0 +1,169 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QTeam.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 롤업은 커밋 직전에 맞춰지므로 변경마다 커밋하고, 끝나면 팀을 엔티티로 지워(members는 cascade) 롤업도 지운다.
+ */
+@SpringBootTest
+class TeamStatsRepositoryTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	TeamStatsRepository teamStatsRepository;
+
+	private Long teamAId;
+	private Long teamBId;
+	private Long youngestId;
+	private Long oldestId;
+
+	@BeforeEach
+	public void before() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team teamA = new Team("statsTeamA");
+			Team teamB = new Team("statsTeamB");
+			em.persist(teamA);
+			em.persist(teamB);
+			Member youngest = new Member("statsMember1", 10, teamA);
+			em.persist(youngest);
+			em.persist(new Member("statsMember2", 20, teamA));
+			em.persist(new Member("statsMember3", 30, teamB));
+			Member oldest = new Member("statsMember4", 40, teamB);
+			em.persist(oldest);
+			teamAId = teamA.getId();
+			teamBId = teamB.getId();
+			youngestId = youngest.getId();
+			oldestId = oldest.getId();
+		});
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> em
+			.createQuery("select t from Team t where t.name like 'statsTeam%'", Team.class)
+			.getResultList()
+			.forEach(em::remove));
+	}
+
+	@Test
+	public void insertsAreRolledUp() {
+		TeamStatsDto stats = stats().get("statsTeamA");
+		Assertions.assertThat(stats.getMemberCount()).isEqualTo(2);
+		Assertions.assertThat(stats.getAgeSum()).isEqualTo(30);
+		Assertions.assertThat(stats.getAgeAvg()).isEqualTo(15);
+		Assertions.assertThat(stats.getAgeMin()).isEqualTo(10);
+		Assertions.assertThat(stats.getAgeMax()).isEqualTo(20);
+		assertMatchesAggregation();
+	}
+
+	@Test
+	public void followsAgeChangesTeamMovesAndDeletes() {
+		transactionTemplate.executeWithoutResult(status -> {
+			em.find(Member.class, youngestId).setAge(25);
+			em.find(Member.class, oldestId).changeTeam(em.find(Team.class, teamAId));
+		});
+		assertMatchesAggregation();
+		Assertions.assertThat(stats().get("statsTeamB").getAgeMax()).isEqualTo(30);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Member oldest = em.find(Member.class, oldestId);
+			oldest.getTeam().getMembers().remove(oldest);
+			em.remove(oldest);
+		});
+		assertMatchesAggregation();
+		Assertions.assertThat(stats().get("statsTeamA").getAgeMax()).isEqualTo(25);
+	}
+
+	@Test
+	public void emptyTeamHasNoAgeStats() {
+		transactionTemplate.executeWithoutResult(status -> em.persist(new Team("statsTeamEmpty")));
+
+		TeamStatsDto stats = stats().get("statsTeamEmpty");
+		Assertions.assertThat(stats.getMemberCount()).isZero();
+		Assertions.assertThat(stats.getAgeAvg()).isNull();
+		Assertions.assertThat(stats.getAgeMin()).isNull();
+	}
+
+	@Test
+	public void reconcileRepairsDrift() {
+		transactionTemplate.executeWithoutResult(status -> em
+			.createNativeQuery("update team_stats set member_count = 99, age_min = null where team_id = ?")
+			.setParameter(1, teamBId)
+			.executeUpdate());
+
+		Assertions.assertThat(transactionTemplate.execute(status -> teamStatsRepository.reconcile()))
+			.isGreaterThanOrEqualTo(1);
+		assertMatchesAggregation();
+		Assertions.assertThat(transactionTemplate.execute(status -> teamStatsRepository.reconcile())).isZero();
+	}
+
+	@Test
+	public void manyChangesInOneTransactionAreRolledUp() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team teamA = em.find(Team.class, teamAId);
+			for (int i = 0; i < 20; i++) {
+				em.persist(new Member("statsMemberBatch" + i, 50 + i, teamA));
+				// flush마다 롤업을 고치지 않고 커밋 직전에 한 번 반영한다
+				em.flush();
+			}
+			em.find(Member.class, youngestId).setAge(5);
+		});
+
+		assertMatchesAggregation();
+		Assertions.assertThat(stats().get("statsTeamA").getMemberCount()).isEqualTo(22);
+		Assertions.assertThat(stats().get("statsTeamA").getAgeMin()).isEqualTo(5);
+		Assertions.assertThat(stats().get("statsTeamA").getAgeMax()).isEqualTo(69);
+	}
+
+	private Map<String, TeamStatsDto> stats() {
+		return teamStatsRepository.findAll().stream()
+			.filter(stats -> stats.getTeamName().startsWith("statsTeam"))
+			.collect(Collectors.toMap(TeamStatsDto::getTeamName, Function.identity()));
+	}
+
+	/**
+	 * 롤업이 member 전체를 group by 한 결과와 같아야 한다
+	 */
+	private void assertMatchesAggregation() {
+		List<Tuple> rows = new JPAQueryFactory(em)
+			.select(team.name, member.count(), member.age.sum(), member.age.min(), member.age.max())
+			.from(member)
+			.join(member.team, team)
+			.where(team.name.startsWith("statsTeam"))
+			.groupBy(team.name)
+			.fetch();
+		Map<String, TeamStatsDto> stats = stats();
+		for (Tuple row : rows) {
+			TeamStatsDto rollup = stats.get(row.get(team.name));
+			Assertions.assertThat(rollup.getMemberCount()).isEqualTo(row.get(member.count()));
+			Assertions.assertThat(rollup.getAgeSum()).isEqualTo(row.get(member.age.sum()).longValue());
+			Assertions.assertThat(rollup.getAgeMin()).isEqualTo(row.get(member.age.min()));
+			Assertions.assertThat(rollup.getAgeMax()).isEqualTo(row.get(member.age.max()));
+		}
+	}
+}
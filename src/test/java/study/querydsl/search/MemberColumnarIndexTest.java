@@ -0,0 +1,166 @@
+package study.querydsl.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest(properties = {"member.search.in-memory.enabled=true", "member.search.in-memory.max-delta=3"})
+class MemberColumnarIndexTest {
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberColumnarIndex columnarIndex;
+	@Autowired
+	MemberRepository memberRepository;
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.username like 'columnar%'").executeUpdate();
+			em.createQuery("delete from Team t where t.name like 'columnarTeam%'").executeUpdate();
+		});
+	}
+
+	@Test
+	public void committedChangesAreSearchable() {
+		Team team = transactionTemplate.execute(status -> {
+			Team newTeam = new Team("columnarTeam");
+			em.persist(newTeam);
+			for (int i = 0; i < 10; i++) {
+				em.persist(new Member("columnar" + i, i * 10, newTeam));
+			}
+			return newTeam;
+		});
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("columnarTeam");
+		condition.setAgeGoe(20);
+		condition.setAgeLoe(60);
+		Page<MemberTeamDto> page = columnarIndex.search(condition, PageRequest.of(1, 2));
+		Assertions.assertThat(page.getTotalElements()).isEqualTo(5);
+		Assertions.assertThat(page.getContent()).extracting("username").containsExactly("columnar4", "columnar5");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.find(Team.class, team.getId()).setName("columnarTeamRenamed");
+			em.createQuery("select m from Member m where m.username = 'columnar4'", Member.class)
+				.getSingleResult()
+				.setAge(99);
+		});
+		condition.setTeamName("columnarTeamRenamed");
+		Assertions.assertThat(columnarIndex.search(condition, PageRequest.of(0, 10)))
+			.extracting("username")
+			.containsExactly("columnar2", "columnar3", "columnar5", "columnar6");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.remove(em.createQuery("select m from Member m where m.username = 'columnar2'", Member.class)
+				.getSingleResult());
+			status.setRollbackOnly();
+		});
+		Assertions.assertThat(columnarIndex.search(condition, PageRequest.of(0, 10))).hasSize(4);
+	}
+
+	@Test
+	public void deletedTeamIsDroppedFromNameLookup() {
+		TeamDictionary teams = TeamDictionary.empty().with(1L, "columnarTeam").with(2L, "columnarTeam");
+
+		TeamDictionary deleted = teams.without(1L);
+
+		Assertions.assertThat(deleted.codes("columnarTeam")).containsExactly(teams.code(2L));
+		Assertions.assertThat(deleted.code(2L)).isEqualTo(teams.code(2L));
+		Assertions.assertThat(deleted.name(teams.code(1L))).isNull();
+	}
+
+	@Test
+	public void sameResultAsDatabase() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Team team = new Team("columnarTeamCompare");
+			em.persist(team);
+			for (int i = 0; i < 30; i++) {
+				em.persist(new Member("columnarCompare" + i, i % 7, i % 3 == 0 ? null : team));
+			}
+		});
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("columnarTeamCompare");
+		condition.setAgeLoe(3);
+
+		List<MemberTeamDto> expected = memberRepository.search(condition);
+		Page<MemberTeamDto> actual = columnarIndex.search(condition, PageRequest.of(0, 100));
+
+		Assertions.assertThat(actual.getTotalElements()).isEqualTo(expected.size());
+		Assertions.assertThat(actual.getContent()).usingRecursiveFieldByFieldElementComparator()
+			.containsExactlyInAnyOrderElementsOf(expected);
+	}
+
+	@Test
+	public void compactsOffCommittingThread() {
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameStartsWith("columnarCompact");
+		for (int i = 0; i < 10; i++) {
+			int age = i;
+			transactionTemplate.executeWithoutResult(status -> em.persist(new Member("columnarCompact" + age, age)));
+			// 합치는 중에도 검색은 이전 상태와 delta로 모든 변경을 본다
+			Assertions.assertThat(columnarIndex.search(condition, PageRequest.of(0, 20)).getTotalElements())
+				.isEqualTo(i + 1);
+		}
+
+		columnarIndex.awaitCompaction();
+		Assertions.assertThat(columnarIndex.deltaSize()).isLessThanOrEqualTo(3);
+		Assertions.assertThat(columnarIndex.search(condition, PageRequest.of(0, 20)).getContent())
+			.usingRecursiveFieldByFieldElementComparator()
+			.containsExactlyInAnyOrderElementsOf(memberRepository.search(condition));
+	}
+
+	@Test
+	public void pagesAcrossSnapshotAndRepeatedlyChangedDelta() {
+		List<Long> ids = transactionTemplate.execute(status -> {
+			Team team = new Team("columnarTeamPage");
+			em.persist(team);
+			List<Long> memberIds = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				Member newMember = new Member("columnarPage" + i, i, team);
+				em.persist(newMember);
+				memberIds.add(newMember.getId());
+			}
+			return memberIds;
+		});
+		columnarIndex.awaitCompaction();
+
+		// 같은 회원을 두 번 바꾸고 다른 회원은 조건에서 빠지게 해, 합쳐지지 않은 delta에 남긴다
+		transactionTemplate.executeWithoutResult(status -> em.find(Member.class, ids.get(3)).setAge(100));
+		transactionTemplate.executeWithoutResult(status -> em.find(Member.class, ids.get(3)).setAge(3));
+		transactionTemplate.executeWithoutResult(status -> em.find(Member.class, ids.get(6))
+			.setUsername("columnarGone"));
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameStartsWith("columnarPage");
+		List<MemberTeamDto> expected = new ArrayList<>(memberRepository.search(condition));
+		expected.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+		Assertions.assertThat(expected).hasSize(9);
+
+		for (int page = 0; page < 4; page++) {
+			Page<MemberTeamDto> actual = columnarIndex.search(condition, PageRequest.of(page, 3));
+			Assertions.assertThat(actual.getTotalElements()).isEqualTo(expected.size());
+			Assertions.assertThat(actual.getContent()).usingRecursiveFieldByFieldElementComparator()
+				.containsExactlyElementsOf(expected.subList(Math.min(page * 3, 9), Math.min(page * 3 + 3, 9)));
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package study.querydsl.seed;
+
+import static study.querydsl.entity.QMember.*;
+import static study.querydsl.entity.QMemberTeamView.*;
+import static study.querydsl.entity.QMemberUsernameGram.*;
+import static study.querydsl.entity.QTeam.*;
+import static study.querydsl.entity.QTeamStats.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.SideTableSync;
+import study.querydsl.repository.MemberDataVersion;
+
+/**
+ * 적재는 청크마다 커밋하므로 트랜잭션 롤백 대신 적재한 팀을 엔티티로 지워(members는 cascade) 읽기 모델과 롤업도 지운다.
+ */
+@SpringBootTest(properties = "member.search.read-model.enabled=true")
+class MemberSeederTest {
+	private static final int MEMBERS = 270;
+	private static final int TEAMS = 27;
+
+	@Autowired
+	EntityManager em;
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	@Autowired
+	MemberSeeder memberSeeder;
+	@Autowired
+	MemberDataVersion dataVersion;
+
+	private JPAQueryFactory queryFactory;
+	private long lastTeamIdBefore;
+
+	@BeforeEach
+	public void before() {
+		queryFactory = new JPAQueryFactory(em);
+		Long lastTeamId = queryFactory.select(team.id.max()).from(team).fetchOne();
+		lastTeamIdBefore = lastTeamId != null ? lastTeamId : 0;
+	}
+
+	@AfterEach
+	public void cleanUp() {
+		transactionTemplate.executeWithoutResult(status -> seededTeamIds()
+			.forEach(teamId -> em.remove(em.find(Team.class, teamId))));
+	}
+
+	@Test
+	public void roundRobinFillsTeamsEvenlyAndSideTables() {
+		long versionBefore = dataVersion.current();
+
+		SeedResult result = memberSeeder.seed(MEMBERS, TEAMS, TeamDistribution.ROUND_ROBIN);
+
+		Assertions.assertThat(result.getMembers()).isEqualTo(MEMBERS);
+		Assertions.assertThat(result.getTeams()).isEqualTo(TEAMS);
+		List<Long> teamIds = seededTeamIds();
+		Assertions.assertThat(queryFactory.select(team.name).from(team).where(team.id.in(teamIds)).fetch())
+			.containsExactlyInAnyOrderElementsOf(expectedTeamNames());
+		Assertions.assertThat(membersPerTeam(teamIds).values())
+			.hasSize(TEAMS)
+			.allMatch(count -> count == MEMBERS / TEAMS);
+		assertSideTablesMatchMembers(teamIds);
+		Assertions.assertThat(dataVersion.current()).isGreaterThan(versionBefore);
+	}
+
+	@Test
+	public void skewedPutsMoreMembersInEarlierTeams() {
+		memberSeeder.seed(MEMBERS, TEAMS, TeamDistribution.SKEWED);
+
+		List<Long> teamIds = seededTeamIds();
+		Map<Long, Long> membersPerTeam = membersPerTeam(teamIds);
+		Assertions.assertThat(membersPerTeam.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(MEMBERS);
+		Assertions.assertThat(membersPerTeam.get(teamIds.get(0)))
+			.isGreaterThan(membersPerTeam.getOrDefault(teamIds.get(TEAMS - 1), 0L));
+		assertSideTablesMatchMembers(teamIds);
+	}
+
+	@Test
+	public void suspendedThreadDoesNotWriteSideTables() {
+		Long teamId = transactionTemplate.execute(status -> SideTableSync.suspend(() -> {
+			Team suspended = new Team("suspendedTeam");
+			em.persist(suspended);
+			em.persist(new Member("suspendedMember", 10, suspended));
+			return suspended.getId();
+		}));
+
+		Assertions.assertThat(queryFactory.selectFrom(teamStats).where(teamStats.teamId.eq(teamId)).fetch()).isEmpty();
+		Assertions.assertThat(queryFactory.selectFrom(memberTeamView).where(memberTeamView.teamId.eq(teamId)).fetch())
+			.isEmpty();
+		Assertions.assertThat(queryFactory
+				.selectFrom(memberUsernameGram)
+				.where(memberUsernameGram.memberId.in(
+					JPAExpressions.select(member.id).from(member).where(member.team.id.eq(teamId))))
+				.fetch())
+			.isEmpty();
+	}
+
+	/**
+	 * 적재 중에는 동기화를 끄고 끝난 뒤 member_team, 트라이그램, team_stats를 한 번에 만든다. 세 테이블이 member와 같은지 본다.
+	 */
+	private void assertSideTablesMatchMembers(List<Long> teamIds) {
+		List<Tuple> members = queryFactory
+			.select(member.id, member.username, member.age, team.id, team.name)
+			.from(member)
+			.join(member.team, team)
+			.where(team.id.in(teamIds))
+			.fetch();
+		Assertions.assertThat(members).hasSize(MEMBERS);
+		List<Long> memberIds = members.stream().map(row -> row.get(member.id)).collect(Collectors.toList());
+
+		Set<String> expectedViews = new HashSet<>();
+		Set<String> expectedGrams = new HashSet<>();
+		for (Tuple row : members) {
+			expectedViews.add(row.get(member.id) + "/" + row.get(member.username) + "/" + row.get(member.age)
+				+ "/" + row.get(team.id) + "/" + row.get(team.name));
+			for (String gram : grams(row.get(member.username))) {
+				expectedGrams.add(row.get(member.id) + "/" + gram);
+			}
+		}
+		Assertions.assertThat(queryFactory
+				.select(memberTeamView.memberId, memberTeamView.username, memberTeamView.age, memberTeamView.teamId,
+					memberTeamView.teamName)
+				.from(memberTeamView)
+				.where(memberTeamView.teamId.in(teamIds))
+				.fetch()
+				.stream()
+				.map(row -> row.get(memberTeamView.memberId) + "/" + row.get(memberTeamView.username) + "/"
+					+ row.get(memberTeamView.age) + "/" + row.get(memberTeamView.teamId) + "/"
+					+ row.get(memberTeamView.teamName)))
+			.containsExactlyInAnyOrderElementsOf(expectedViews);
+		Assertions.assertThat(queryFactory
+				.select(memberUsernameGram.memberId, memberUsernameGram.gram)
+				.from(memberUsernameGram)
+				.where(memberUsernameGram.memberId.in(memberIds))
+				.fetch()
+				.stream()
+				.map(row -> row.get(memberUsernameGram.memberId) + "/" + row.get(memberUsernameGram.gram)))
+			.containsExactlyInAnyOrderElementsOf(expectedGrams);
+
+		List<Tuple> aggregation = queryFactory
+			.select(team.id, member.count(), member.age.sum(), member.age.min(), member.age.max())
+			.from(member)
+			.join(member.team, team)
+			.where(team.id.in(teamIds))
+			.groupBy(team.id)
+			.fetch();
+		Map<Long, Tuple> rollup = queryFactory
+			.select(teamStats.teamId, teamStats.memberCount, teamStats.ageSum, teamStats.ageMin, teamStats.ageMax)
+			.from(teamStats)
+			.where(teamStats.teamId.in(teamIds))
+			.fetch()
+			.stream()
+			.collect(Collectors.toMap(row -> row.get(teamStats.teamId), row -> row));
+		// 회원이 없는 팀도 0건으로 롤업에 있어야 한다
+		Assertions.assertThat(rollup).hasSize(TEAMS);
+		for (Tuple row : aggregation) {
+			Tuple stats = rollup.get(row.get(team.id));
+			Assertions.assertThat(stats.get(teamStats.memberCount)).isEqualTo(row.get(member.count()));
+			Assertions.assertThat(stats.get(teamStats.ageSum)).isEqualTo(row.get(member.age.sum()).longValue());
+			Assertions.assertThat(stats.get(teamStats.ageMin)).isEqualTo(row.get(member.age.min()));
+			Assertions.assertThat(stats.get(teamStats.ageMax)).isEqualTo(row.get(member.age.max()));
+		}
+	}
+
+	private Map<Long, Long> membersPerTeam(List<Long> teamIds) {
+		return queryFactory
+			.select(member.team.id, member.count())
+			.from(member)
+			.where(member.team.id.in(teamIds))
+			.groupBy(member.team.id)
+			.fetch()
+			.stream()
+			.collect(Collectors.toMap(row -> row.get(member.team.id), row -> row.get(member.count())));
+	}
+
+	private List<Long> seededTeamIds() {
+		return queryFactory
+			.select(team.id)
+			.from(team)
+			.where(team.id.gt(lastTeamIdBefore))
+			.orderBy(team.id.asc())
+			.fetch();
+	}
+
+	private static List<String> expectedTeamNames() {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < TEAMS; i++) {
+			names.add("team" + i);
+		}
+		return names;
+	}
+
+	/**
+	 * UsernamePredicates.grams와 같은 규칙(중복을 뺀 3글자 조각). 패키지 전용이라 여기서 다시 만든다
+	 */
+	private static Set<String> grams(String username) {
+		Set<String> grams = new HashSet<>();
+		for (int i = 0; i + 3 <= username.length(); i++) {
+			grams.add(username.substring(i, i + 3));
+		}
+		return grams;
+	}
+}
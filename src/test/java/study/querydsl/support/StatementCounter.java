@@ -0,0 +1,53 @@
+package study.querydsl.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 테스트용 N+1 감지기. hibernate.session_factory.statement_inspector 로 등록되며,
+ * {@link #assertAtMost} 블록 안에서 현재 스레드가 준비한 SQL만 센다.
+ */
+public class StatementCounter implements StatementInspector {
+	private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+	@Override
+	public String inspect(String sql) {
+		List<String> statements = STATEMENTS.get();
+		if (statements != null) {
+			statements.add(sql);
+		}
+		return sql;
+	}
+
+	/**
+	 * call 한 번이 max개보다 많은 SQL을 실행하면 실행된 SQL 목록과 함께 실패한다.
+	 */
+	public static <T> T assertAtMost(int max, Supplier<T> call) {
+		List<String> statements = new ArrayList<>();
+		T result = record(statements, call);
+		Assertions.assertThat(statements)
+			.as("SQL statements issued by one call (N+1?)")
+			.hasSizeLessThanOrEqualTo(max);
+		return result;
+	}
+
+	public static int count(Supplier<?> call) {
+		List<String> statements = new ArrayList<>();
+		record(statements, call);
+		return statements.size();
+	}
+
+	private static <T> T record(List<String> statements, Supplier<T> call) {
+		List<String> outer = STATEMENTS.get();
+		STATEMENTS.set(statements);
+		try {
+			return call.get();
+		} finally {
+			STATEMENTS.set(outer);
+		}
+	}
+}